@@ -19,17 +19,20 @@
 
 package elius.virtualoperator;
 
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import elius.virtualoperator.db.DBTables;
+import elius.virtualoperator.task.TaskArchiver;
+import elius.virtualoperator.task.TaskExecutorPools;
+import elius.virtualoperator.task.TaskJournal;
 import elius.virtualoperator.task.TaskSubmitter;
+import elius.virtualoperator.task.TaskType;
+import elius.virtualoperator.task.job.search.JobSearch;
 import elius.webapp.framework.properties.PropertiesManager;
 import elius.webapp.framework.properties.PropertiesManagerFactory;
 
@@ -38,14 +41,23 @@ public class VirtualOperator {
 	// Get logger
 	private static Logger logger = LogManager.getLogger(VirtualOperator.class);
 
-	// Task executor service
-	private ExecutorService taskExecutor;
+	// Task executor pools
+	private TaskExecutorPools taskExecutor;
 	
 	// Scheduler service for task execution
 	private ScheduledExecutorService scheduler;
 	
-	// Scheduled Future of scheduler service
-	private ScheduledFuture<?> scheduledFuture;
+	// Task submitter
+	private TaskSubmitter taskSubmitter;
+	
+	// Task status journal
+	private TaskJournal taskJournal;
+	
+	// Scheduler service for the task journal flush, apart from the submitter runs
+	private ScheduledExecutorService journalScheduler;
+	
+	// Scheduler service for task archival, apart because waiting for the lock
+	private ScheduledExecutorService archiver;
 	
 	// Properties file
 	private PropertiesManager appProperties;
@@ -77,14 +89,53 @@ public class VirtualOperator {
 				// Log successful
 				logger.info("Database initialized");			
 			}
+			
+		// Upgrade database to the last schema version if required
+		} else if("Y".equalsIgnoreCase(appProperties.get(VirtualOperatorAttributes.PROP_DATABASE_MIGRATE_ON_BOOT, VirtualOperatorAttributes.DEFAULT_DATABASE_MIGRATE_ON_BOOT))) {
+			
+			// Application database instance
+			DBTables dbTask = new DBTables();
+			
+			// Database migration
+			if (0 != dbTask.migrate()) {
+				// Log error
+				logger.error("Error during database migration");
+			} else {
+				// Log successful
+				logger.info("Database migrated");
+			}
 		}
 
 
 		// Read number of threads from properties
 		int nThreads = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_THREADS, VirtualOperatorAttributes.DEFAULT_EXECUTOR_SERVICE_THREADS);
 
-		// Initialize executor service
-		taskExecutor = Executors.newFixedThreadPool(nThreads);	
+		// Read max number of tasks waiting for a thread from properties
+		int backlog = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_BACKLOG, VirtualOperatorAttributes.DEFAULT_EXECUTOR_SERVICE_BACKLOG);
+
+		// Initialize executor service, waiting tasks started by priority
+		taskExecutor = new TaskExecutorPools(nThreads, backlog);	
+		
+		// Define the pools of the types with their own number of threads
+		for (TaskType type : TaskType.values()) {
+			
+			// Run the type on virtual threads
+			boolean virtual = "Y".equalsIgnoreCase(appProperties.get(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_VIRTUAL + "." + type.name(), "N"));
+			
+			// Number of threads of the type, 0 to use the shared pool
+			int nTypeThreads = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_THREADS + "." + type.name(), virtual ? VirtualOperatorAttributes.DEFAULT_EXECUTOR_SERVICE_VIRTUAL_THREADS : 0);
+			if (nTypeThreads <= 0)
+				continue;
+			
+			// Max number of tasks of the type waiting for a thread
+			int typeBacklog = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_BACKLOG + "." + type.name(), backlog);
+			
+			// Define pool
+			if (virtual)
+				taskExecutor.defineVirtual(type, nTypeThreads, typeBacklog);
+			else
+				taskExecutor.define(type, nTypeThreads, typeBacklog);
+		}
 		
 		// Log executor service
 		logger.debug("Executor service defined");
@@ -94,16 +145,31 @@ public class VirtualOperator {
 		
 		// Log executor service
 		logger.debug("Scheduler service defined");
+		
+		// Initialize task status journal
+		taskJournal = new TaskJournal(appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_JOURNAL_FLUSH_SIZE, VirtualOperatorAttributes.DEFAULT_TASK_JOURNAL_FLUSH_SIZE),
+										appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_JOURNAL_MAX_PENDING, VirtualOperatorAttributes.DEFAULT_TASK_JOURNAL_MAX_PENDING));
+		
+		// Flush task status journal periodically, on its own thread so a slow submitter run doesn't delay it
+		journalScheduler = Executors.newSingleThreadScheduledExecutor();
+		taskJournal.start(journalScheduler, appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_JOURNAL_FLUSH_INTERVAL, VirtualOperatorAttributes.DEFAULT_TASK_JOURNAL_FLUSH_INTERVAL));
+		
+		// Log task status journal
+		logger.debug("Task journal defined");
 
 		
 		// Activate executor service scheduler
 		if("Y".equalsIgnoreCase(appProperties.get(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_SCHEDULE_ACTIVE))) {
 			
-			// Read time interval from properties
+			// Read time interval from properties: max delay between polls when the queue is idle
 			int timeInterval = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_TIME_INTERVAL, VirtualOperatorAttributes.DEFAULT_EXECUTOR_SERVICE_SCHEDULE_ACTIVE);
 			
-			// Schedule task submission
-			scheduledFuture = scheduler.scheduleAtFixedRate(new TaskSubmitter(taskExecutor), 0, timeInterval, TimeUnit.SECONDS);
+			// Read min time interval from properties: delay between polls while tasks are found
+			int minTimeInterval = appProperties.getInt(VirtualOperatorAttributes.PROP_EXECUTOR_SERVICE_TIME_INTERVAL_MIN, VirtualOperatorAttributes.DEFAULT_EXECUTOR_SERVICE_TIME_INTERVAL_MIN);
+			
+			// Schedule task submission, woken up by local task additions
+			taskSubmitter = new TaskSubmitter(taskExecutor, taskJournal, scheduler, minTimeInterval, timeInterval);
+			taskSubmitter.start();
 			
 			// Log scheduler service
 			logger.debug("Scheduler task submission defined");			
@@ -112,6 +178,30 @@ public class VirtualOperator {
 			logger.warn("Scheduler task submission disabled");		
 		}
 		
+		// Activate task archiver
+		if("Y".equalsIgnoreCase(appProperties.get(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_ACTIVE, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_ACTIVE))) {
+			
+			// Create task archiver
+			TaskArchiver taskArchiver = new TaskArchiver(
+					appProperties.get(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_LOCK_APPLICATION, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_LOCK_APPLICATION),
+					appProperties.getLong(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_AGE, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_AGE),
+					appProperties.getLong(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_NEW_TTL, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_NEW_TTL),
+					appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_BATCH, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_BATCH));
+			
+			// Read archiver interval from properties
+			int archiverInterval = appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_ARCHIVER_INTERVAL, VirtualOperatorAttributes.DEFAULT_TASK_ARCHIVER_INTERVAL);
+			
+			// Schedule task archival
+			archiver = Executors.newSingleThreadScheduledExecutor();
+			archiver.scheduleWithFixedDelay(taskArchiver, archiverInterval, archiverInterval, TimeUnit.SECONDS);
+			
+			// Log archiver
+			logger.debug("Task archiver defined");
+		} else {
+			// Log archiver
+			logger.warn("Task archiver disabled");
+		}
+		
 		// Log initialization
 		logger.info("Operator service initialized");		
 	}
@@ -130,9 +220,9 @@ public class VirtualOperator {
 		// Verify scheduler status
 		if(null != scheduler) {
 			
-			// Log a message if the scheduler service was crashed
-			if(scheduledFuture.isDone())
-				logger.warn("Scheduler service was not running before shutdown");
+			// Stop receiving signals
+			if(null != taskSubmitter)
+				taskSubmitter.stop();
 			
 			// Shutdown scheduler
 	        scheduler.shutdown();
@@ -149,6 +239,22 @@ public class VirtualOperator {
 		}
 
 
+		// Shutdown task archiver
+		if(null != archiver) {
+			
+			// Stop running and wait for the end
+			archiver.shutdownNow();
+			try {
+				archiver.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				// Log error
+				logger.error("Interrupted waiting for the task archiver");
+			}
+			
+			// Log archiver shutdown
+			logger.debug("Task archiver terminated");
+		}
+		
 		// Log scheduler shutdown
 		logger.debug("Shutdown task executor");
 		
@@ -168,6 +274,22 @@ public class VirtualOperator {
 			// Log missing task executor
 			logger.warn("Task executor inactive");
 		}
+		
+		// Stop the threads of the parallel job log searches
+		JobSearch.shutdown();
+		
+		// Write task changes still pending
+		if(null != taskJournal) {
+			
+			// Last flush
+			taskJournal.close();
+			
+			// Stop journal scheduler
+			journalScheduler.shutdown();
+			
+			// Log task journal shutdown
+			logger.debug("Task journal closed");
+		}
         
 		// Log shutdown
 		logger.info("Operator service terminated");		
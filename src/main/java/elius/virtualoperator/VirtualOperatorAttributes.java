@@ -25,15 +25,57 @@ public class VirtualOperatorAttributes {
 	public static final String EVO_PROPERTIES_FILE = "evo.properties";
 	
 	
+	// Default - Database migration on startup
+	public static final String DEFAULT_DATABASE_MIGRATE_ON_BOOT = "Y";
+	
 	// Default - Number of executor service thread
 	public static final int DEFAULT_EXECUTOR_SERVICE_THREADS = 2;
 	
+	// Default - Max number of tasks waiting for an executor service thread
+	public static final int DEFAULT_EXECUTOR_SERVICE_BACKLOG = 2;
+	
+	// Default - Max number of tasks of a type running together on virtual threads
+	public static final int DEFAULT_EXECUTOR_SERVICE_VIRTUAL_THREADS = 256;
+	
 	// Default - Executor service schedule status
 	public static final int DEFAULT_EXECUTOR_SERVICE_SCHEDULE_ACTIVE = 15;
 	
+	// Default - Min polling time interval in seconds
+	public static final int DEFAULT_EXECUTOR_SERVICE_TIME_INTERVAL_MIN = 1;
+	
+	// Default - Task journal flush interval in milliseconds
+	public static final int DEFAULT_TASK_JOURNAL_FLUSH_INTERVAL = 500;
+	
+	// Default - Number of tasks with pending changes that triggers a journal flush
+	public static final int DEFAULT_TASK_JOURNAL_FLUSH_SIZE = 50;
+	
+	// Default - Max number of tasks with changes not written by the journal
+	public static final int DEFAULT_TASK_JOURNAL_MAX_PENDING = 10000;
+	
+	// Default - Tasks added by a single transaction of a bulk request
+	public static final int DEFAULT_TASK_BULK_CHUNK = 500;
+	
 	// Default - Number of task to own from queue
 	public static final int DEFAULT_TASK_SUBMITTER_TASK_TO_OWN = 4;
 		
+	// Default - Task archiver status, off: archived tasks are read only with archived=Y
+	public static final String DEFAULT_TASK_ARCHIVER_ACTIVE = "N";
+	
+	// Default - Task archiver run interval in seconds
+	public static final int DEFAULT_TASK_ARCHIVER_INTERVAL = 300;
+	
+	// Default - Age in seconds of the finished tasks moved to the history
+	public static final long DEFAULT_TASK_ARCHIVER_AGE = 86400;
+	
+	// Default - Age in seconds of the new tasks expired because not started, 0 never
+	public static final long DEFAULT_TASK_ARCHIVER_NEW_TTL = 0;
+	
+	// Default - Tasks moved to the history by a single transaction
+	public static final int DEFAULT_TASK_ARCHIVER_BATCH = 500;
+	
+	// Default - Task archiver lock application name
+	public static final String DEFAULT_TASK_ARCHIVER_LOCK_APPLICATION = "EVO-ARCHIVER";
+	
 	// Default - Lock Manager application name
 	public static final String DEFAULT_LOCK_MANAGER_APPLICATION = "EVO";
 	
@@ -56,18 +98,60 @@ public class VirtualOperatorAttributes {
 	// Properties - Database initialization on startup (cold start) (y/n) , default is n
 	public static final String PROP_DATABASE_INIT_ON_BOOT = "database.initOnBoot";
 
+	// Properties - Database migration to the last schema version on startup (y/n), default is y
+	public static final String PROP_DATABASE_MIGRATE_ON_BOOT = "database.migrateOnBoot";
+
 	// Properties - Executor service schedule status
 	public static final String PROP_EXECUTOR_SERVICE_SCHEDULE_ACTIVE = "executor.service.schedule.active";
 	
-	// Properties - Number of executor service thread
+	// Properties - Number of executor service thread, followed by .<TaskType> for the pool of a type
 	public static final String PROP_EXECUTOR_SERVICE_THREADS = "executor.service.threads";
 	
+	// Properties - Max number of tasks waiting for an executor service thread, followed by .<TaskType> for the pool of a type
+	public static final String PROP_EXECUTOR_SERVICE_BACKLOG = "executor.service.backlog";
+	
+	// Properties - Run a task type on virtual threads (y/n), followed by .<TaskType>
+	public static final String PROP_EXECUTOR_SERVICE_VIRTUAL = "executor.service.virtual";
+	
 	// Properties - Polling time interval
 	public static final String PROP_EXECUTOR_SERVICE_TIME_INTERVAL = "executor.service.timeInterval";
 	
+	// Properties - Min polling time interval, used while new tasks are found
+	public static final String PROP_EXECUTOR_SERVICE_TIME_INTERVAL_MIN = "executor.service.timeInterval.min";
+	
+	// Properties - Task journal flush interval in milliseconds
+	public static final String PROP_TASK_JOURNAL_FLUSH_INTERVAL = "task.journal.flush.interval";
+	
+	// Properties - Number of tasks with pending changes that triggers a journal flush
+	public static final String PROP_TASK_JOURNAL_FLUSH_SIZE = "task.journal.flush.size";
+	
+	// Properties - Max number of tasks with changes not written by the journal
+	public static final String PROP_TASK_JOURNAL_MAX_PENDING = "task.journal.maxPending";
+	
+	// Properties - Tasks added by a single transaction of a bulk request
+	public static final String PROP_TASK_BULK_CHUNK = "task.bulk.chunk";
+	
 	// Properties - Number of task to own from queue
 	public static final String PROP_TASK_SUBMITTER_TASK_TO_OWN = "task.submitter.taskToOwn";
 	
+	// Properties - Task archiver status
+	public static final String PROP_TASK_ARCHIVER_ACTIVE = "task.archiver.active";
+	
+	// Properties - Task archiver run interval in seconds
+	public static final String PROP_TASK_ARCHIVER_INTERVAL = "task.archiver.interval";
+	
+	// Properties - Age in seconds of the finished tasks moved to the history
+	public static final String PROP_TASK_ARCHIVER_AGE = "task.archiver.age";
+	
+	// Properties - Age in seconds of the new tasks expired because not started, 0 never
+	public static final String PROP_TASK_ARCHIVER_NEW_TTL = "task.archiver.new.ttl";
+	
+	// Properties - Tasks moved to the history by a single transaction
+	public static final String PROP_TASK_ARCHIVER_BATCH = "task.archiver.batch";
+	
+	// Properties - Task archiver lock application name
+	public static final String PROP_TASK_ARCHIVER_LOCK_APPLICATION = "task.archiver.lock.application";
+	
 	// Properties - Lock Manager application
 	public static final String PROP_LOCK_MANAGER_APPLICATION = "lock.manager.application";
 	
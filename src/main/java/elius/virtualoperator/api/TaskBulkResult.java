@@ -0,0 +1,83 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package elius.virtualoperator.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class TaskBulkResult {
+	// Position of the task in the request
+	private int index;
+	// Task id, missing when the task can't be read
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String uuid;
+	// Error, missing when the task is added
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String error;
+	
+	
+	/**
+	 * Constructor
+	 * @param index Position of the task in the request
+	 * @param uuid Task id
+	 * @param error Error or null if the task is added
+	 */
+	public TaskBulkResult(int index, String uuid, String error) {
+		this.index = index;
+		this.uuid = uuid;
+		this.error = error;
+	}
+
+
+	/**
+	 * Get the position of the task in the request
+	 * @return Position of the task in the request
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+
+	/**
+	 * Get the task id
+	 * @return Task id, null when the task can't be read
+	 */
+	public String getUuid() {
+		return uuid;
+	}
+
+
+	/**
+	 * Get the error
+	 * @return Error, null when the task is added
+	 */
+	public String getError() {
+		return error;
+	}
+
+
+	/**
+	 * Set the error
+	 * @param error Error, null when the task is added
+	 */
+	public void setError(String error) {
+		this.error = error;
+	}
+	
+}
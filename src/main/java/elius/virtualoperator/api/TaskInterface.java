@@ -19,19 +19,37 @@
 
 package elius.virtualoperator.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import elius.virtualoperator.VirtualOperatorAttributes;
 import elius.virtualoperator.task.Task;
 import elius.virtualoperator.task.TaskDatabase;
+import elius.virtualoperator.task.TaskFilter;
+import elius.virtualoperator.task.TaskStatus;
+import elius.virtualoperator.task.TaskSubmitter;
+import elius.virtualoperator.task.TaskType;
+import elius.webapp.framework.properties.PropertiesManager;
+import elius.webapp.framework.properties.PropertiesManagerFactory;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Application;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -45,6 +63,21 @@ public class TaskInterface extends Application {
 	// Task Database
 	private TaskDatabase dbTask;
 	
+	// Default and maximum number of tasks of a page
+	private static final int MAX_TASKS = 999;
+	
+	// Header with the cursor of the next page
+	private static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+	
+	// Newline delimited JSON media type
+	private static final String APPLICATION_NDJSON = "application/x-ndjson";
+	
+	// Multi-status, some tasks of a bulk request in error
+	private static final int HTTP_MULTI_STATUS = 207;
+	
+	// Reader of the tasks of a bulk request, thread safe: same mapper of the JSON entities
+	private static final ObjectReader TASK_READER = ObjectMapperProvider.MAPPER.readerFor(Task.class);
+	
 	/**
 	 * Constructor
 	 */
@@ -61,6 +94,11 @@ public class TaskInterface extends Application {
 		// Log request received
 		logger.trace("Task add-to-queue request received");
 		
+		// Check task
+		String error = validate(task);
+		if (null != error)
+			return badRequest(error);
+		
 		// Add task to queue
 		if (0 != dbTask.add(task))
 			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -68,20 +106,242 @@ public class TaskInterface extends Application {
 		// Log request successfully
 		logger.trace("New Task added to queue");
 		
+		// Wake up the local submitter
+		TaskSubmitter.signal();
+		
 		// Return Created
 		return Response.status(Response.Status.CREATED).build();
 	}
 	
 	
+	/**
+	 * Add a JSON array or a newline delimited JSON stream of tasks
+	 * Tasks are read while streaming and added with a batch and a transaction every chunk
+	 * @param body Tasks
+	 * @return Result of every task: 201 all tasks added, 207 some tasks in error
+	 */
+	@POST
+	@Path("/bulk")
+	@Consumes({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response addBulk(InputStream body) {
+		
+		// Log request received
+		logger.trace("Task bulk add-to-queue request received");
+		
+		// Application properties
+		PropertiesManager appProperties = PropertiesManagerFactory.getInstance(VirtualOperatorAttributes.EVO_PROPERTIES_FILE);
+		
+		// Tasks added by a single transaction
+		int chunkSize = Math.max(1, appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_BULK_CHUNK, VirtualOperatorAttributes.DEFAULT_TASK_BULK_CHUNK));
+		
+		// Result of every task
+		List<TaskBulkResult> results = new ArrayList<TaskBulkResult>();
+		
+		// Tasks of the current chunk and their results
+		List<Task> chunk = new ArrayList<Task>(chunkSize);
+		List<TaskBulkResult> chunkResults = new ArrayList<TaskBulkResult>(chunkSize);
+		
+		// Number of tasks in error
+		int nErrors = 0;
+		
+		// Request can't be read
+		boolean unreadable = false;
+		
+		// Array elements or root values, a task at a time
+		try (MappingIterator<Task> it = TASK_READER.readValues(body)) {
+			
+			while (it.hasNextValue()) {
+				
+				// Position of the task
+				int index = results.size() + chunkResults.size();
+				
+				// Read task
+				Task task;
+				try {
+					task = it.nextValue();
+				} catch (JsonMappingException e) {
+					// Task in error, go on with the next one
+					results.add(new TaskBulkResult(index, null, "Invalid task: " + e.getOriginalMessage()));
+					nErrors++;
+					continue;
+				}
+				
+				// Check task
+				String error = validate(task);
+				if (null != error) {
+					results.add(new TaskBulkResult(index, ((null != task) && (null != task.getUuid())) ? task.getUuid().toString() : null, error));
+					nErrors++;
+					continue;
+				}
+				
+				// Add to chunk
+				chunk.add(task);
+				chunkResults.add(new TaskBulkResult(index, task.getUuid().toString(), null));
+				
+				// Add chunk to queue
+				if (chunk.size() >= chunkSize)
+					nErrors += addChunk(chunk, chunkResults, results);
+			}
+			
+		} catch (IOException e) {
+			// Log error
+			logger.error("Bulk request can't be read: " + e.getMessage());
+			
+			// Tasks that follow are lost
+			results.add(new TaskBulkResult(results.size() + chunkResults.size(), null, "Request can't be read: " + e.getMessage()));
+			nErrors++;
+			unreadable = true;
+		}
+		
+		// Add last chunk to queue
+		nErrors += addChunk(chunk, chunkResults, results);
+		
+		// Keep the request order
+		results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+		
+		// Wake up the local submitter
+		if (results.size() > nErrors)
+			TaskSubmitter.signal();
+		
+		// Log request
+		logger.trace("Bulk tasks added(" + (results.size() - nErrors) + ") errors(" + nErrors + ")");
+		
+		// Nothing read
+		if (unreadable && (1 == results.size()))
+			return Response.status(Response.Status.BAD_REQUEST).entity(results).build();
+		
+		// Return Created or Multi-status
+		if (0 == nErrors)
+			return Response.status(Response.Status.CREATED).entity(results).build();
+		return Response.status(HTTP_MULTI_STATUS).entity(results).build();
+	}
+	
+	
+	/**
+	 * Add a chunk of tasks to the queue and move their results to the request results
+	 * @param chunk Tasks, cleared on return
+	 * @param chunkResults Results of the tasks, cleared on return
+	 * @param results Request results
+	 * @return The number of tasks in error
+	 */
+	private int addChunk(List<Task> chunk, List<TaskBulkResult> chunkResults, List<TaskBulkResult> results) {
+		
+		// Empty chunk
+		if (chunk.isEmpty())
+			return 0;
+		
+		// Add tasks
+		int[] rc = dbTask.add(chunk);
+		
+		// Set errors
+		int nErrors = 0;
+		for (int i = 0; i < rc.length; i++) {
+			if (0 != rc[i]) {
+				chunkResults.get(i).setError("Task not added");
+				nErrors++;
+			}
+		}
+		
+		// Move results
+		results.addAll(chunkResults);
+		chunk.clear();
+		chunkResults.clear();
+		
+		return nErrors;
+	}
+	
+	
+	/**
+	 * Get a page of tasks, newest first
+	 * Without parameters the newest tasks are returned with every field
+	 * @param status Status id or name
+	 * @param type Type id or name
+	 * @param requester Requester
+	 * @param owner Owner
+	 * @param from Tasks from this time-stamp (yyyy-MM-dd[ HH:mm:ss]), included
+	 * @param to Tasks up to this time-stamp (yyyy-MM-dd[ HH:mm:ss]), excluded
+	 * @param cursor Cursor of the page, from the X-Next-Cursor header of the previous page
+	 * @param limitParam Maximum number of tasks
+	 * @param fields Comma separated optional fields to return (details, result), all by default
+	 * @param archived Y to read the archived tasks
+	 * @return Task list, X-Next-Cursor header when a next page exists
+	 */
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response get() {
+	public Response get(@QueryParam("status") String status, 
+						@QueryParam("type") String type, 
+						@QueryParam("requester") String requester, 
+						@QueryParam("owner") String owner, 
+						@QueryParam("from") String from, 
+						@QueryParam("to") String to, 
+						@QueryParam("cursor") String cursor, 
+						@QueryParam("limit") @DefaultValue("999") String limitParam, 
+						@QueryParam("fields") String fields,
+						@QueryParam("archived") @DefaultValue("N") String archived) {
 		
 		// Log request received
 		logger.trace("Task get request received");
 		
+		// Check page size
+		int limit;
+		try {
+			limit = Integer.parseInt(limitParam.trim());
+		} catch (NumberFormatException e) {
+			limit = -1;
+		}
+		if ((limit < 1) || (limit > MAX_TASKS))
+			return badRequest("Invalid limit(" + limitParam + ")");
+		
+		// Filter
+		TaskFilter filter = new TaskFilter(limit);
+		
+		// Status
+		if (null != status) {
+			filter.setStatus(parseStatus(status));
+			if (null == filter.getStatus())
+				return badRequest("Invalid status(" + status + ")");
+		}
+		
+		// Type
+		if (null != type) {
+			filter.setType(parseType(type));
+			if (null == filter.getType())
+				return badRequest("Invalid type(" + type + ")");
+		}
+		
+		// Requester and owner
+		filter.setRequester(requester);
+		filter.setOwner(owner);
+		
+		// Date range
+		if (null != from) {
+			filter.setFrom(parseTimestamp(from));
+			if (null == filter.getFrom())
+				return badRequest("Invalid from(" + from + ")");
+		}
+		if (null != to) {
+			filter.setTo(parseTimestamp(to));
+			if (null == filter.getTo())
+				return badRequest("Invalid to(" + to + ")");
+		}
+		
+		// Page position
+		if ((null != cursor) && (0 != filter.setCursor(cursor)))
+			return badRequest("Invalid cursor(" + cursor + ")");
+		
+		// Optional fields
+		if (null != fields) {
+			List<String> f = List.of(fields.toLowerCase().replace(" ", "").split(","));
+			filter.setDetails(f.contains("details"));
+			filter.setResult(f.contains("result"));
+		}
+		
+		// Queue or history
+		filter.setArchived("Y".equalsIgnoreCase(archived));
+		
 		// Fetch task from database
-		List<Task> tasks = dbTask.getAll(999);
+		List<Task> tasks = dbTask.list(filter);
 		
 		// Check errors
 		if (null == tasks) {
@@ -95,7 +355,91 @@ public class TaskInterface extends Application {
 		// Log request successfully
 		logger.trace("Task fetched");
 		
-		// Return created
-		return Response.ok().entity(tasks).build();
+		// Last page
+		if (tasks.size() <= limit)
+			return Response.ok().entity(tasks).build();
+		
+		// Drop the extra task and return the cursor of the next page
+		tasks = tasks.subList(0, limit);
+		return Response.ok().entity(tasks).header(HEADER_NEXT_CURSOR, TaskFilter.cursor(tasks.get(limit - 1))).build();
+	}
+	
+	
+	/**
+	 * Check a task to add, the same way for single and bulk requests
+	 * @param task Task
+	 * @return Error or null if the task can be added
+	 */
+	private static String validate(Task task) {
+		
+		// Empty request
+		if (null == task)
+			return "Missing task";
+		
+		// Task id, null when sent as null
+		if (null == task.getUuid())
+			return "Missing uuid";
+		
+		// Mandatory fields
+		if ((null == task.getStatus()) || (null == task.getType()) || (null == task.getPriority()))
+			return "Missing status, type or priority";
+		
+		return null;
+	}
+	
+	
+	/**
+	 * Bad request response
+	 * @param message Error message
+	 * @return Response
+	 */
+	private static Response badRequest(String message) {
+		// Log error
+		logger.error(message);
+		
+		// Return error
+		return Response.status(Response.Status.BAD_REQUEST).entity(message).build();
+	}
+	
+	
+	/**
+	 * Parse a status id or name
+	 * @param s Status id or name
+	 * @return Status or null if unknown
+	 */
+	private static TaskStatus parseStatus(String s) {
+		for (TaskStatus e : TaskStatus.values()) {
+			if ((TaskStatus.UNKNOWN != e) && (e.name().equalsIgnoreCase(s) || String.valueOf(e.getId()).equals(s)))
+				return e;
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Parse a type id or name
+	 * @param s Type id or name
+	 * @return Type or null if unknown
+	 */
+	private static TaskType parseType(String s) {
+		for (TaskType e : TaskType.values()) {
+			if ((TaskType.UNKNOWN != e) && (e.name().equalsIgnoreCase(s) || String.valueOf(e.getId()).equals(s)))
+				return e;
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Parse a time-stamp
+	 * @param s Time-stamp (yyyy-MM-dd[ HH:mm:ss])
+	 * @return Time-stamp or null if invalid
+	 */
+	private static Timestamp parseTimestamp(String s) {
+		try {
+			return Timestamp.valueOf((10 == s.trim().length()) ? s.trim() + " 00:00:00" : s.trim());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
 	}
 }
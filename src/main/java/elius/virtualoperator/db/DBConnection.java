@@ -0,0 +1,82 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.VirtualOperatorAttributes;
+
+public class DBConnection {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(DBConnection.class);
+	
+	// JNDI environment prefix
+	private static final String JNDI_ENV = "java:comp/env/";
+	
+	// Virtual operator data-source, looked up once
+	private static volatile DataSource dataSource;
+	
+	
+	/**
+	 * Get a connection of the virtual operator data-source, for statements not supported by DBManager like batches
+	 * The caller must close the connection
+	 * @return Connection
+	 * @throws SQLException Data-source not found or connection error
+	 */
+	public static Connection get() throws SQLException {
+		
+		// Data-source already found
+		DataSource ds = dataSource;
+		
+		if(null == ds) {
+			
+			try {
+				
+				// Look up data-source
+				ds = (DataSource)new InitialContext().lookup(JNDI_ENV + VirtualOperatorAttributes.DATASOURCE_EVO);
+				
+			} catch (NamingException e) {
+				
+				// Log error
+				logger.error("Data-source(" + VirtualOperatorAttributes.DATASOURCE_EVO + ") not found");
+				
+				// Return error
+				throw new SQLException(e.getMessage(), e);
+			}
+			
+			// Save data-source
+			dataSource = ds;
+		}
+		
+		// Get connection
+		return ds.getConnection();
+	}
+	
+}
@@ -17,8 +17,15 @@
     under the License.
 */
 
+
 package elius.virtualoperator.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,11 +39,27 @@ public class DBTables {
 	// Database interface
 	private DBManager db;
 	
+	// Drop table SCHEMA_VERSION
+	private static final String SQL_TABLE_SCHEMA_VERSION_DROP = "DROP TABLE SCHEMA_VERSION";
+
+	// Create table SCHEMA_VERSION
+	private static final String SQL_TABLE_SCHEMA_VERSION = "CREATE TABLE IF NOT EXISTS SCHEMA_VERSION ("
+															+ "  VERSION INTEGER NOT NULL DEFAULT 0"
+															+ ", DESCRIPTION VARCHAR(256) NOT NULL DEFAULT ''"
+															+ ", APPLIED TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+															+ ", PRIMARY KEY (VERSION))";
+	
+	// Get current schema version
+	private static final String SQL_SELECT_SCHEMA_VERSION = "SELECT COALESCE(MAX(VERSION), 0) FROM SCHEMA_VERSION";
+	
+	// Insert applied schema version
+	private static final String SQL_INSERT_SCHEMA_VERSION = "INSERT INTO SCHEMA_VERSION (VERSION, DESCRIPTION) VALUES (?, ?)";
+	
 	// Drop table LOCK
 	private static final String SQL_TABLE_DISTRIBUTED_LOCK_DROP = "DROP TABLE DISTRIBUTED_LOCK";
 
 	// Create table LOCK
-	private static final String SQL_TABLE_DISTRIBUTED_LOCK = "CREATE TABLE DISTRIBUTED_LOCK ("
+	private static final String SQL_TABLE_DISTRIBUTED_LOCK = "CREATE TABLE IF NOT EXISTS DISTRIBUTED_LOCK ("
 															+ "  APPLICATION VARCHAR(128) NOT NULL DEFAULT 'EVO'"
 															+ ", OWNER VARCHAR(128) NOT NULL DEFAULT ''"
 															+ ", ID CHAR(36) NOT NULL DEFAULT ' '"
@@ -48,7 +71,7 @@ public class DBTables {
 	private static final String SQL_TABLE_TASK_QUEUE_DROP = "DROP TABLE TASK_QUEUE";
 
 	// Create table TASK_QUEUE
-	private static final String SQL_TABLE_TASK_QUEUE = "CREATE TABLE TASK_QUEUE ("
+	private static final String SQL_TABLE_TASK_QUEUE = "CREATE TABLE IF NOT EXISTS TASK_QUEUE ("
 															+ "  ID CHAR(36) NOT NULL DEFAULT ' '"
 															+ ", DATE TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
 															+ ", STATUS INTEGER NOT NULL DEFAULT 0"
@@ -60,6 +83,66 @@ public class DBTables {
 															+ ", OWNER VARCHAR(128) NOT NULL DEFAULT ''"
 															+ ", PRIMARY KEY (ID))";
 	
+	// Add claim column to TASK_QUEUE
+	private static final String SQL_TABLE_TASK_QUEUE_CLAIM = "ALTER TABLE TASK_QUEUE ADD COLUMN IF NOT EXISTS CLAIM CHAR(36) NOT NULL DEFAULT ' '";
+	
+	// Index of TASK_QUEUE for the dispatch: new tasks by higher priority, older
+	private static final String SQL_INDEX_TASK_QUEUE_DISPATCH = "CREATE INDEX IF NOT EXISTS TASK_QUEUE_DISPATCH ON TASK_QUEUE (STATUS, PRIORITY DESC, DATE, ID)";
+	
+	// Index of TASK_QUEUE for the listing: last arrived
+	private static final String SQL_INDEX_TASK_QUEUE_LIST = "CREATE INDEX IF NOT EXISTS TASK_QUEUE_LIST ON TASK_QUEUE (DATE DESC, ID DESC)";
+	
+	// Index of TASK_QUEUE for the claimed tasks
+	private static final String SQL_INDEX_TASK_QUEUE_CLAIM = "CREATE INDEX IF NOT EXISTS TASK_QUEUE_CLAIM ON TASK_QUEUE (CLAIM)";
+	
+	// Drop table TASK_HISTORY
+	private static final String SQL_TABLE_TASK_HISTORY_DROP = "DROP TABLE TASK_HISTORY";
+
+	// Create table TASK_HISTORY: tasks moved from TASK_QUEUE when finished
+	private static final String SQL_TABLE_TASK_HISTORY = "CREATE TABLE IF NOT EXISTS TASK_HISTORY ("
+															+ "  ID CHAR(36) NOT NULL DEFAULT ' '"
+															+ ", DATE TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+															+ ", STATUS INTEGER NOT NULL DEFAULT 0"
+															+ ", TYPE INTEGER NOT NULL DEFAULT 0"
+															+ ", PRIORITY INTEGER NOT NULL DEFAULT 0"
+															+ ", DETAILS VARCHAR(1024) NOT NULL DEFAULT ''"
+															+ ", RESULT VARCHAR(1024) NOT NULL DEFAULT ''"
+															+ ", REQUESTER VARCHAR(128) NOT NULL DEFAULT ''"
+															+ ", OWNER VARCHAR(128) NOT NULL DEFAULT ''"
+															+ ", ARCHIVED TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+															+ ", PRIMARY KEY (ID))";
+	
+	// Index of TASK_HISTORY for the listing: last arrived
+	private static final String SQL_INDEX_TASK_HISTORY_LIST = "CREATE INDEX IF NOT EXISTS TASK_HISTORY_LIST ON TASK_HISTORY (DATE DESC, ID DESC)";
+	
+	// Index of TASK_QUEUE for the archival: finished tasks, older
+	private static final String SQL_INDEX_TASK_QUEUE_ARCHIVE = "CREATE INDEX IF NOT EXISTS TASK_QUEUE_ARCHIVE ON TASK_QUEUE (STATUS, DATE)";
+	
+	// Drop table JOB_LOG_OFFSET
+	private static final String SQL_TABLE_JOB_LOG_OFFSET_DROP = "DROP TABLE JOB_LOG_OFFSET";
+
+	// Create table JOB_LOG_OFFSET
+	private static final String SQL_TABLE_JOB_LOG_OFFSET = "CREATE TABLE IF NOT EXISTS JOB_LOG_OFFSET ("
+															+ "  NAME VARCHAR(128) NOT NULL DEFAULT ''"
+															+ ", URL VARCHAR(1024) NOT NULL DEFAULT ''"
+															+ ", FILE_KEY VARCHAR(256) NOT NULL DEFAULT ''"
+															+ ", HEAD_LENGTH INTEGER NOT NULL DEFAULT 0"
+															+ ", HEAD_HASH BIGINT NOT NULL DEFAULT 0"
+															+ ", LOG_OFFSET BIGINT NOT NULL DEFAULT 0"
+															+ ", LOG_SIZE BIGINT NOT NULL DEFAULT 0"
+															+ ", UPDATED TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+															+ ", PRIMARY KEY (NAME))";
+	
+	// Schema migrations in version order: applied once, statements must be repeatable
+	private static final Migration[] MIGRATIONS = {
+		new Migration(1, "Distributed lock and task queue", SQL_TABLE_DISTRIBUTED_LOCK, SQL_TABLE_TASK_QUEUE),
+		new Migration(2, "Job log offset", SQL_TABLE_JOB_LOG_OFFSET),
+		new Migration(3, "Task claim", SQL_TABLE_TASK_QUEUE_CLAIM),
+		new Migration(4, "Task queue indexes", SQL_INDEX_TASK_QUEUE_DISPATCH, SQL_INDEX_TASK_QUEUE_LIST, SQL_INDEX_TASK_QUEUE_CLAIM),
+		new Migration(5, "Task history", SQL_TABLE_TASK_HISTORY, SQL_INDEX_TASK_HISTORY_LIST, SQL_INDEX_TASK_QUEUE_ARCHIVE)
+	};
+	
+	
 	/**
 	 * Constructor
 	 */
@@ -69,41 +152,148 @@ public class DBTables {
 	
 	
 	/**
-	 * Initialize Virtual Operator database
+	 * Initialize Virtual Operator database: drop all the tables and create them again
 	 * @return 0 Successfully initialized, 1 Error
 	 */
 	public int init() {
 		// Log initialization 
 		logger.debug("Database initialization");
 	
+		// Schema version, Drop
+		drop(SQL_TABLE_SCHEMA_VERSION_DROP, "SCHEMA_VERSION");
+		
 		// Distributed lock, Drop
-		if (0 != db.execute(SQL_TABLE_DISTRIBUTED_LOCK_DROP)) {
-			// Log action
-			logger.warn("Table DISTRIBUTED_LOCK doesn't exist");
-		} else {
-			// Log action
-			logger.debug("Table DISTRIBUTED_LOCK dropped");
-		}
-
-		// Distributed lock, Create
-		if (0 != db.execute(SQL_TABLE_DISTRIBUTED_LOCK)) return 1;
-		logger.debug("Table DISTRIBUTED_LOCK created");
+		drop(SQL_TABLE_DISTRIBUTED_LOCK_DROP, "DISTRIBUTED_LOCK");
 		
 		// Queue, Drop
-		if (0 != db.execute(SQL_TABLE_TASK_QUEUE_DROP))  {
+		drop(SQL_TABLE_TASK_QUEUE_DROP, "TASK_QUEUE");
+		
+		// History, Drop
+		drop(SQL_TABLE_TASK_HISTORY_DROP, "TASK_HISTORY");
+		
+		// Job log offset, Drop
+		drop(SQL_TABLE_JOB_LOG_OFFSET_DROP, "JOB_LOG_OFFSET");
+		
+		// Create tables
+		return migrate();
+	}
+	
+	
+	/**
+	 * Upgrade Virtual Operator database to the last schema version, keeping the data
+	 * Migrations already applied, also by another node, are skipped
+	 * @return 0 Successfully upgraded, 1 Error
+	 */
+	public int migrate() {
+		// Log migration
+		logger.debug("Database migration");
+		
+		try (Connection connection = DBConnection.get();
+				Statement statement = connection.createStatement()) {
+			
+			// Schema version table
+			statement.execute(SQL_TABLE_SCHEMA_VERSION);
+			
+			// Current version
+			int version = getVersion(statement);
+			
+			// Log current version
+			logger.debug("Database schema version(" + version + ")");
+			
+			// Apply new migrations
+			for (Migration migration : MIGRATIONS) {
+				
+				// Already applied
+				if (migration.version <= version)
+					continue;
+				
+				// Execute statements
+				for (String sql : migration.statements)
+					statement.execute(sql);
+				
+				// Save version
+				try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT_SCHEMA_VERSION)) {
+					insert.setInt(1, migration.version);
+					insert.setString(2, migration.description);
+					insert.executeUpdate();
+				} catch (SQLException e) {
+					// Applied at the same time by another node
+					if (getVersion(statement) < migration.version)
+						throw e;
+				}
+				
+				// Log migration
+				logger.info("Database schema version(" + migration.version + ") applied: " + migration.description);
+			}
+			
+		} catch (SQLException e) {
+			// Log error
+			logger.error("Database migration error");
+			logger.error(e.getMessage());
+			// Return error
+			return 1;
+		}
+		
+		// Set return code
+		return 0;
+	}
+	
+	
+	/**
+	 * Get current schema version
+	 * @param statement Statement
+	 * @return Version, 0 if no migration was applied
+	 * @throws SQLException Error reading the version
+	 */
+	private int getVersion(Statement statement) throws SQLException {
+		try (ResultSet rs = statement.executeQuery(SQL_SELECT_SCHEMA_VERSION)) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+	
+	
+	/**
+	 * Drop a table
+	 * @param sql Drop statement
+	 * @param table Table name
+	 */
+	private void drop(String sql, String table) {
+		if (0 != db.execute(sql)) {
 			// Log action
-			logger.warn("Table TASK_QUEUE doesn't exist");
+			logger.warn("Table " + table + " doesn't exist");
 		} else {
 			// Log action
-			logger.debug("Table TASK_QUEUE dropped");
+			logger.debug("Table " + table + " dropped");
 		}
-
-		// Queue, Create
-		if (0 != db.execute(SQL_TABLE_TASK_QUEUE)) return 1;
-		logger.debug("Table TASK_QUEUE created");
+	}
+	
+	
+	/**
+	 * Schema migration
+	 */
+	private static class Migration {
 		
-		// Set return code
-		return  0;
+		// Schema version
+		private final int version;
+		
+		// Description
+		private final String description;
+		
+		// Statements
+		private final String[] statements;
+		
+		
+		/**
+		 * Constructor
+		 * @param version Schema version
+		 * @param description Description
+		 * @param statements Statements
+		 */
+		Migration(int version, String description, String... statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
 	}
 
 }
@@ -58,8 +58,21 @@ public class LockManager {
 	
 	/**
 	 * Constructor
+	 * The application name is read from the properties
 	 */
 	public LockManager() {
+		this(null);
+	}
+	
+	
+	/**
+	 * Constructor
+	 * @param application Application name, to use a lock different from the task submission one
+	 */
+	public LockManager(String application) {
+		
+		// Application name, null to read it from the properties
+		this.application = application;
 		
 		// Initialize lock database access
 		dbLock = new LockDatabase();
@@ -83,13 +96,15 @@ public class LockManager {
 		logger.info("Initialize Lock Manager");
 		
 		// Get application name
-		application = appProperties.get(VirtualOperatorAttributes.PROP_LOCK_MANAGER_APPLICATION, VirtualOperatorAttributes.DEFAULT_LOCK_MANAGER_APPLICATION);
+		if(null == application)
+			application = appProperties.get(VirtualOperatorAttributes.PROP_LOCK_MANAGER_APPLICATION, VirtualOperatorAttributes.DEFAULT_LOCK_MANAGER_APPLICATION);
+		
+		// Set application name, also when the record is already defined
+		lock.setApplication(application);
 		
 		// Search if there are other records for the same application
 		if(null == dbLock.get(application)) {
 			
-			// Set application name
-			lock.setApplication(application);
 			// Empty Owner
 			lock.setOwner("");
 			
@@ -23,6 +23,7 @@ import java.sql.Timestamp;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 public class Task {
 	// Universal unique identifier
@@ -36,9 +37,11 @@ public class Task {
 	private TaskType type;
 	// Priority
 	private TaskPriority priority;
-	// Details of the request
+	// Details of the request, omitted when not read
+	@JsonInclude(JsonInclude.Include.NON_NULL)
 	private String details;
-	// Result of the execution
+	// Result of the execution, omitted when not read
+	@JsonInclude(JsonInclude.Include.NON_NULL)
 	private String result;
 	// Who request the task
 	private String requester;
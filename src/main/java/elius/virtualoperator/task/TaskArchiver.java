@@ -0,0 +1,139 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task;
+
+import java.sql.Timestamp;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.lock.LockManager;
+
+public class TaskArchiver implements Runnable {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(TaskArchiver.class);
+	
+	// Max batches moved by a single run, to keep the lock for a short time
+	private static final int MAX_BATCHES = 20;
+	
+	// Result of the expired tasks
+	private static final String EXPIRED_RESULT = "Expired: not started in time";
+	
+	// Task Database
+	private TaskDatabase dbTask;
+	
+	// Lock Manager: only one node archives at a time
+	private LockManager lockManager;
+	
+	// Age of the finished tasks to archive (seconds)
+	private long age;
+	
+	// Age of the new tasks to expire (seconds), 0 to never expire
+	private long ttl;
+	
+	// Tasks moved by a single transaction
+	private int batchSize;
+	
+	
+	/**
+	 * Constructor
+	 * @param application Lock application name, different from the task submission one
+	 * @param age Age of the finished tasks to archive (seconds)
+	 * @param ttl Age of the new tasks to expire (seconds), 0 to never expire
+	 * @param batchSize Tasks moved by a single transaction
+	 */
+	public TaskArchiver(String application, long age, long ttl, int batchSize) {
+		
+		// Set ages
+		this.age = age;
+		this.ttl = ttl;
+		
+		// Set batch size
+		this.batchSize = Math.max(1, batchSize);
+		
+		// Task Database instance
+		dbTask = new TaskDatabase();
+		
+		// Create lock manager
+		lockManager = new LockManager(application);
+		
+		// Initialize lock manager
+		lockManager.initialization();
+	}
+	
+	
+	@Override
+	public void run() {
+		// Log start
+		logger.debug("Archiver started");
+		
+		try {
+			
+			// Get lock, otherwise another node is archiving
+			if(0 != lockManager.lock())
+				return;
+			
+			try {
+				
+				// Expire new tasks not started in time
+				if(ttl > 0) {
+					int nExpired = dbTask.expire(new Timestamp(System.currentTimeMillis() - (ttl * 1000)), EXPIRED_RESULT);
+					if(nExpired > 0)
+						logger.info("Expired new tasks(" + nExpired + ")");
+				}
+				
+				// Archive finished tasks in batches
+				Timestamp before = new Timestamp(System.currentTimeMillis() - (age * 1000));
+				int nArchived = 0;
+				for (int i = 0; i < MAX_BATCHES; i++) {
+					
+					// Move a batch
+					int n = dbTask.archive(before, batchSize);
+					if(n > 0)
+						nArchived += n;
+					
+					// No more tasks or error
+					if(n < batchSize)
+						break;
+				}
+				
+				// Log
+				if(nArchived > 0)
+					logger.info("Archived finished tasks(" + nArchived + ")");
+				
+			} finally {
+				
+				// Release lock
+				lockManager.unlock();
+			}
+			
+		} catch (RuntimeException e) {
+			
+			// Log error and keep scheduling
+			logger.error("Archiver error: " + e.getMessage());
+		}
+		
+		// Log end
+		logger.debug("Archiver ended");
+	}
+	
+}
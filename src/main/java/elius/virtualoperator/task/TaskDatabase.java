@@ -19,16 +19,23 @@
 
 package elius.virtualoperator.task;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.StringJoiner;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import elius.virtualoperator.VirtualOperatorAttributes;
+import elius.virtualoperator.db.DBConnection;
 import elius.webapp.framework.db.DBManager;
 
 public class TaskDatabase {
@@ -39,23 +46,62 @@ public class TaskDatabase {
 	// Database interface
 	private DBManager db;
 	
+	// Task columns, read by position
+	private static final String SQL_COLUMNS = "ID, DATE, STATUS, TYPE, PRIORITY, DETAILS, RESULT, REQUESTER, OWNER";
+	
+	// Task column positions
+	private static final int COL_ID = 1;
+	private static final int COL_DATE = 2;
+	private static final int COL_STATUS = 3;
+	private static final int COL_TYPE = 4;
+	private static final int COL_PRIORITY = 5;
+	private static final int COL_DETAILS = 6;
+	private static final int COL_RESULT = 7;
+	private static final int COL_REQUESTER = 8;
+	private static final int COL_OWNER = 9;
+	
+	// Rows fetched from the database at a time
+	private static final int FETCH_SIZE = 100;
+	
 	// Insert task in the TaskQueue table
 	private static final String SQL_INSERT = "INSERT INTO TASK_QUEUE (ID, STATUS, TYPE, PRIORITY, DETAILS, REQUESTER, OWNER) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
 	// Select all task in the TaskQueue table with a limit
 	// Order by Status, Higher Priority, Last Arrived
-	private static final String SQL_SELECT_ALL_MAX_ROWS = "SELECT * FROM TASK_QUEUE ORDER BY DATE DESC FETCH FIRST ? ROWS ONLY";
+	private static final String SQL_SELECT_ALL_MAX_ROWS = "SELECT " + SQL_COLUMNS + " FROM TASK_QUEUE ORDER BY DATE DESC FETCH FIRST ? ROWS ONLY";
 	
 	// Select all task in the TaskQueue table
 	// Order by Status, Higher Priority, Last Arrived
 	// private static final String SQL_SELECT_ALL = "SELECT * FROM TASK_QUEUE ORDER BY DATE DESC FOR FETCH ONLY";
 	
-	// Select new task in the TaskQueue table with a limit
+	// Claim new tasks with a single update: only tasks still new are claimed, so concurrent nodes never claim the same task
 	// Order by Higher Priority, Older
-	private static final String SQL_SELECT_NEW_MAX_ROWS = "SELECT * FROM TASK_QUEUE WHERE STATUS = 1 ORDER BY PRIORITY DESC, DATE ASC FETCH FIRST ? ROWS ONLY";
+	private static final String SQL_UPDATE_CLAIM = "UPDATE TASK_QUEUE SET STATUS = ?, OWNER = ?, CLAIM = ? WHERE STATUS = 1 AND ID IN "
+													+ "(SELECT ID FROM TASK_QUEUE WHERE STATUS = 1 ORDER BY PRIORITY DESC, DATE ASC FETCH FIRST ? ROWS ONLY)";
+	
+	// Claim new tasks of some types, the type filter is inserted before the order
+	private static final String SQL_UPDATE_CLAIM_TYPES = "UPDATE TASK_QUEUE SET STATUS = ?, OWNER = ?, CLAIM = ? WHERE STATUS = 1 AND ID IN "
+													+ "(SELECT ID FROM TASK_QUEUE WHERE STATUS = 1 AND TYPE %s ORDER BY PRIORITY DESC, DATE ASC FETCH FIRST ? ROWS ONLY)";
+	
+	// Select the tasks of a claim
+	// Order by Higher Priority, Older
+	private static final String SQL_SELECT_CLAIM = "SELECT " + SQL_COLUMNS + " FROM TASK_QUEUE WHERE CLAIM = ? ORDER BY PRIORITY DESC, DATE ASC";
+	
+	// Select finished tasks (ended, error, warning) to archive
+	// Order by Older
+	private static final String SQL_SELECT_ARCHIVE = "SELECT ID FROM TASK_QUEUE WHERE STATUS IN ("
+													+ TaskStatus.ENDED.getId() + ", " + TaskStatus.ERROR.getId() + ", " + TaskStatus.WARNING.getId() + ")"
+													+ " AND DATE < ? ORDER BY DATE ASC FETCH FIRST ? ROWS ONLY";
+	
+	// Copy a task to the TaskHistory table
+	private static final String SQL_INSERT_HISTORY = "INSERT INTO TASK_HISTORY (" + SQL_COLUMNS + ") SELECT " + SQL_COLUMNS + " FROM TASK_QUEUE WHERE ID = ?";
+	
+	// Delete a task from the TaskQueue table
+	private static final String SQL_DELETE = "DELETE FROM TASK_QUEUE WHERE ID = ?";
+	
+	// Expire new tasks not started in time
+	private static final String SQL_UPDATE_EXPIRE = "UPDATE TASK_QUEUE SET STATUS = ?, RESULT = ? WHERE STATUS = " + TaskStatus.NEW.getId() + " AND DATE < ?";
 	
-	// Update task status and set the owner in the TaskQueue table
-	private static final String SQL_UPDATE_OWN = "UPDATE TASK_QUEUE SET STATUS = ?, OWNER = ? WHERE ID = ?";
 
 	// Update task status in the TaskQueue table
 	private static final String SQL_UPDATE_OWNER = "UPDATE TASK_QUEUE SET OWNER = ? WHERE ID = ?";
@@ -97,27 +143,271 @@ public class TaskDatabase {
 	
 	
 	/**
-	 * Own task in the queue
-	 * @param uuid Task UUID
-	 * @param status New task status
+	 * Add tasks to the internal queue with a single batch and transaction
+	 * When the batch fails the tasks are added one at a time, to find the ones in error
+	 * @param tasks Tasks
+	 * @return Result of every task: 0 Successfully, 1 Error
+	 */
+	public int[] add(List<Task> tasks) {
+		// Log add tasks
+		logger.debug("Add tasks(" + tasks.size() + ")");
+		
+		// Result of every task, in error until inserted
+		int[] rc = new int[tasks.size()];
+		Arrays.fill(rc, 1);
+		
+		try (Connection connection = DBConnection.get();
+				PreparedStatement statement = connection.prepareStatement(SQL_INSERT)) {
+			
+			// Single transaction
+			connection.setAutoCommit(false);
+			
+			try {
+				// Add every task to the batch
+				for (Task task : tasks) {
+					setInsert(statement, task);
+					statement.addBatch();
+				}
+				
+				// Insert and commit
+				statement.executeBatch();
+				connection.commit();
+				
+				// Every task inserted
+				Arrays.fill(rc, 0);
+				
+			} catch (SQLException e) {
+				// Log the error
+				logger.error("Batch insert error, adding tasks one at a time");
+				logger.error(e.getMessage());
+				
+				// Undo the batch
+				connection.rollback();
+				statement.clearBatch();
+				
+				// Add one task at a time
+				connection.setAutoCommit(true);
+				for (int i = 0; i < tasks.size(); i++) {
+					try {
+						setInsert(statement, tasks.get(i));
+						rc[i] = (statement.executeUpdate() > 0) ? 0 : 1;
+					} catch (SQLException ie) {
+						// Log the error
+						logger.error("No rows inserted(" + tasks.get(i).getUuid().toString() + ")");
+						logger.error(ie.getMessage());
+					}
+				}
+			}
+			
+		} catch (SQLException e) {
+			// Log the error
+			logger.error("No rows inserted");
+			logger.error(e.getMessage());
+		}
+		
+		// Return results
+		return rc;
+	}
+	
+	
+	/**
+	 * Set the parameters of the insert statement
+	 * @param statement Insert statement
+	 * @param task Task
+	 * @throws SQLException Error setting parameters
+	 */
+	private static void setInsert(PreparedStatement statement, Task task) throws SQLException {
+		statement.setString(1, task.getUuid().toString());
+		statement.setInt(2, task.getStatus().getId());
+		statement.setInt(3, task.getType().getId());
+		statement.setInt(4, task.getPriority().getId());
+		statement.setString(5, task.getDetails());
+		statement.setString(6, task.getRequester());
+		statement.setString(7, task.getOwner());
+	}
+	
+	
+	/**
+	 * Claim new tasks: status is set to owned with the owner in a single update, without any lock
+	 * @param nTasks The maximum number of task
 	 * @param owner Owner
-	 * @return 0 Successfully, 1 Error
+	 * @return Claimed task list or null in case of errors
 	 */
-	public int own(UUID uuid, TaskStatus status, String owner) {
-		// Log update task
-		logger.debug("Update task(" + uuid + ") set status(" + status.getName() + ") owner(" + owner + ")");
-
-		// Check the number of rows updated
-		if (db.update(SQL_UPDATE_OWN, status.getId(), owner, uuid.toString()) > 0) {
+	public List<Task> claim(int nTasks, String owner) {
+		// Claim id
+		String claim = UUID.randomUUID().toString();
+		
+		// Log claim
+		logger.debug("Claim tasks(" + nTasks + ") owner(" + owner + ") claim(" + claim + ")");
+		
+		// Claim tasks
+		return claim(SQL_UPDATE_CLAIM, nTasks, owner, claim);
+	}
+	
+	
+	/**
+	 * Claim new tasks of some types
+	 * @param nTasks The maximum number of task
+	 * @param owner Owner
+	 * @param types Task types, every type if empty
+	 * @param excluded Claim the tasks of every other type
+	 * @return Claimed task list or null in case of errors
+	 */
+	public List<Task> claim(int nTasks, String owner, Collection<TaskType> types, boolean excluded) {
+		
+		// No type filter
+		if (types.isEmpty())
+			return claim(nTasks, owner);
+		
+		// Type ids, from the enumeration
+		StringJoiner ids = new StringJoiner(", ", excluded ? "NOT IN (" : "IN (", ")");
+		for (TaskType t : types)
+			ids.add(String.valueOf(t.getId()));
+		
+		// Claim id
+		String claim = UUID.randomUUID().toString();
+		
+		// Log claim
+		logger.debug("Claim tasks(" + nTasks + ") types(" + ids + ") owner(" + owner + ") claim(" + claim + ")");
+		
+		// Claim tasks
+		return claim(String.format(SQL_UPDATE_CLAIM_TYPES, ids), nTasks, owner, claim);
+	}
+	
+	
+	/**
+	 * Run a claim update and read the claimed tasks
+	 * The update is run on a connection of its own, to tell the tasks updated from a database error
+	 * @param sql Claim update
+	 * @param nTasks The maximum number of task
+	 * @param owner Owner
+	 * @param claim Claim id
+	 * @return Claimed task list or null in case of errors
+	 */
+	private List<Task> claim(String sql, int nTasks, String owner, String claim) {
+		
+		try (Connection connection = DBConnection.get();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			
+			// Claim tasks
+			statement.setInt(1, TaskStatus.OWNED.getId());
+			statement.setString(2, owner);
+			statement.setString(3, claim);
+			statement.setInt(4, nTasks);
+			
+			// Nothing is updated when there are no new tasks
+			if (0 == statement.executeUpdate()) {
+				logger.debug("No tasks claimed");
+				return new ArrayList<Task>();
+			}
+			
+		} catch (SQLException e) {
 			// Log the error
-			logger.error("No rows uptdated");
+			logger.error("Claim error");
+			logger.error(e.getMessage());
 			// Return error
-			return 1;
+			return null;
 		}
 		
-		// Return successfully
-		return 0;		
-	}	
+		// Get claimed tasks
+		return get(SQL_SELECT_CLAIM, claim);
+	}
+	
+	
+	/**
+	 * Move finished tasks to the history, in a single transaction
+	 * @param before Only tasks arrived before this time stamp are moved
+	 * @param nTasks The maximum number of task
+	 * @return The number of tasks moved, -1 in case of errors
+	 */
+	public int archive(Timestamp before, int nTasks) {
+		// Log archive
+		logger.debug("Archive tasks(" + nTasks + ") before(" + before + ")");
+		
+		// Tasks to move
+		List<String> ids = new ArrayList<String>();
+		
+		try (Connection connection = DBConnection.get()) {
+			
+			// Single transaction
+			connection.setAutoCommit(false);
+			
+			try (PreparedStatement select = connection.prepareStatement(SQL_SELECT_ARCHIVE);
+					PreparedStatement insert = connection.prepareStatement(SQL_INSERT_HISTORY);
+					PreparedStatement delete = connection.prepareStatement(SQL_DELETE)) {
+				
+				// Select tasks
+				select.setTimestamp(1, before);
+				select.setInt(2, nTasks);
+				try (ResultSet rs = select.executeQuery()) {
+					while (rs.next())
+						ids.add(rs.getString(1));
+				}
+				
+				// Copy and delete tasks
+				for (String id : ids) {
+					insert.setString(1, id);
+					insert.addBatch();
+					delete.setString(1, id);
+					delete.addBatch();
+				}
+				if (!ids.isEmpty()) {
+					insert.executeBatch();
+					delete.executeBatch();
+				}
+				
+				// Commit
+				connection.commit();
+				
+			} catch (SQLException e) {
+				
+				// Undo partial moves
+				connection.rollback();
+				throw e;
+			}
+			
+		} catch (SQLException e) {
+			// Log the error
+			logger.error("Archive error");
+			logger.error(e.getMessage());
+			// Return error
+			return -1;
+		}
+		
+		// Return the number of tasks moved
+		return ids.size();
+	}
+	
+	
+	/**
+	 * Expire new tasks not started in time: status is set to error
+	 * @param before Only tasks arrived before this time stamp are expired
+	 * @param result Task result
+	 * @return The number of tasks expired, -1 in case of errors
+	 */
+	public int expire(Timestamp before, String result) {
+		// Log expire
+		logger.debug("Expire new tasks before(" + before + ")");
+		
+		try (Connection connection = DBConnection.get();
+				PreparedStatement update = connection.prepareStatement(SQL_UPDATE_EXPIRE)) {
+			
+			// Set parameters
+			update.setInt(1, TaskStatus.ERROR.getId());
+			update.setString(2, result);
+			update.setTimestamp(3, before);
+			
+			// Return the number of tasks expired
+			return update.executeUpdate();
+			
+		} catch (SQLException e) {
+			// Log the error
+			logger.error("Expire error");
+			logger.error(e.getMessage());
+			// Return error
+			return -1;
+		}
+	}
 	
 	
 	/**
@@ -199,70 +489,153 @@ public class TaskDatabase {
  		return get(SQL_SELECT_ALL_MAX_ROWS, nTasks);
  	}
 
+	
 	/**
-	 * Get new tasks
-	 * @param nTasks The maximum number of task 
-	 * @return Task list or null in case of missing connection with the database
+	 * Get a page of tasks, newest first
+	 * Only the filtered rows and the requested columns are read, the page starts after the cursor task
+	 * @param filter Task filter
+	 * @return Task list, one task more than the limit when a next page exists, or null in case of errors
 	 */
- 	public List<Task> getNew(int nTasks) {
- 		return get(SQL_SELECT_NEW_MAX_ROWS, nTasks);
+ 	public List<Task> list(TaskFilter filter) {
+ 		
+ 		// SQL parameters
+ 		List<Object> params = new ArrayList<Object>();
+ 		
+ 		// Columns, details and result not requested are read as null on the same positions
+ 		StringBuilder sql = new StringBuilder("SELECT ID, DATE, STATUS, TYPE, PRIORITY");
+ 		sql.append(filter.isDetails() ? ", DETAILS" : ", NULL");
+ 		sql.append(filter.isResult() ? ", RESULT" : ", NULL");
+ 		sql.append(", REQUESTER, OWNER");
+ 		
+ 		// Queue or history
+ 		sql.append(filter.isArchived() ? " FROM TASK_HISTORY WHERE 1 = 1" : " FROM TASK_QUEUE WHERE 1 = 1");
+ 		
+ 		// Status
+ 		if (null != filter.getStatus()) {
+ 			sql.append(" AND STATUS = ?");
+ 			params.add(filter.getStatus().getId());
+ 		}
+ 		
+ 		// Type
+ 		if (null != filter.getType()) {
+ 			sql.append(" AND TYPE = ?");
+ 			params.add(filter.getType().getId());
+ 		}
+ 		
+ 		// Requester
+ 		if (null != filter.getRequester()) {
+ 			sql.append(" AND REQUESTER = ?");
+ 			params.add(filter.getRequester());
+ 		}
+ 		
+ 		// Owner
+ 		if (null != filter.getOwner()) {
+ 			sql.append(" AND OWNER = ?");
+ 			params.add(filter.getOwner());
+ 		}
+ 		
+ 		// From time-stamp
+ 		if (null != filter.getFrom()) {
+ 			sql.append(" AND DATE >= ?");
+ 			params.add(filter.getFrom());
+ 		}
+ 		
+ 		// To time-stamp
+ 		if (null != filter.getTo()) {
+ 			sql.append(" AND DATE < ?");
+ 			params.add(filter.getTo());
+ 		}
+ 		
+ 		// After the last task of the previous page, on the (DATE, ID) order
+ 		if (null != filter.getAfterDate()) {
+ 			sql.append(" AND (DATE < ? OR (DATE = ? AND ID < ?))");
+ 			params.add(filter.getAfterDate());
+ 			params.add(filter.getAfterDate());
+ 			params.add(filter.getAfterUuid().toString());
+ 		}
+ 		
+ 		// Newest first, one more row to know if a next page exists
+ 		sql.append(" ORDER BY DATE DESC, ID DESC FETCH FIRST ? ROWS ONLY");
+ 		params.add(filter.getLimit() + 1);
+ 		
+ 		return get(sql.toString(), params.toArray());
  	}
  	
 	
 	/**
 	 * Get task 
-	 * @param sql SQL to be executed
-	 * @param nTasks The maximum number of task
+	 * Rows are read from the result set straight into tasks, the pool can cache the prepared statements
+	 * @param sql SQL to be executed, selecting SQL_COLUMNS
+	 * @param params SQL parameters, like the maximum number of task
 	 * @return TaskList or null in case of errors
 	 */
- 	private List<Task> get(String sql, int nTasks) {
+ 	private List<Task> get(String sql, Object... params) {
 		// Log add task
 		logger.debug("Get task");
 
-		// Result table
-		List<Map<String, Object>> table = db.executeQuery(sql, nTasks);
-				
-		// Check the result
-		if (null == table) {
-			// Log the error
-			logger.error("No rows fetched");
-			// Return error
-			return null;
-		}	
-
 		// List of tasks
 		List<Task> taskList =  new ArrayList<Task>();
 
-		// Read rows from database
-		for(Map<String, Object> tableRow : table) {
+		try (Connection connection = DBConnection.get();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			
+			// Set parameters
+			for (int i = 0; i < params.length; i++)
+				statement.setObject(i + 1, params[i]);
 			
-			// Define new task
-			Task t = new Task();
-			// Set task id
-			t.setUuid(UUID.fromString((String)tableRow.get("ID")));
-			// Set task time stamp
-			t.setDate((Timestamp)tableRow.get("DATE"));
-			// Set task status
-			t.setStatus(TaskStatus.getById((int)tableRow.get("STATUS")));
-			// Set task type
-			t.setType(TaskType.getById((int)tableRow.get("TYPE")));
-			// Set task priority
-			t.setPriority(TaskPriority.getById((int)tableRow.get("PRIORITY")));
-			// Set task details
-			t.setDetails((String)tableRow.get("DETAILS"));
-			// Set task result
-			t.setResult((String)tableRow.get("RESULT"));
-			// Set task requester
-			t.setRequester((String)tableRow.get("REQUESTER"));
-			// Set task owner
-			t.setOwner((String)tableRow.get("OWNER"));	
+			// Fetch rows in blocks
+			statement.setFetchSize(FETCH_SIZE);
 			
-			// Add to list
-			taskList.add(t);
+			// Read rows from database
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next())
+					taskList.add(map(rs));
+			}
+			
+		} catch (SQLException e) {
+			// Log the error
+			logger.error("No rows fetched");
+			logger.error(e.getMessage());
+			// Return error
+			return null;
 		}
 
 		// Return task list
 		return taskList;
 	}
+ 	
+ 	
+	/**
+	 * Map the current row to a task
+	 * @param rs Result set positioned on a row
+	 * @return Task
+	 * @throws SQLException Error reading the row
+	 */
+ 	private static Task map(ResultSet rs) throws SQLException {
+		
+		// Define new task
+		Task t = new Task();
+		// Set task id
+		t.setUuid(UUID.fromString(rs.getString(COL_ID).trim()));
+		// Set task time stamp
+		t.setDate(rs.getTimestamp(COL_DATE));
+		// Set task status
+		t.setStatus(TaskStatus.getById(rs.getInt(COL_STATUS)));
+		// Set task type
+		t.setType(TaskType.getById(rs.getInt(COL_TYPE)));
+		// Set task priority
+		t.setPriority(TaskPriority.getById(rs.getInt(COL_PRIORITY)));
+		// Set task details
+		t.setDetails(rs.getString(COL_DETAILS));
+		// Set task result
+		t.setResult(rs.getString(COL_RESULT));
+		// Set task requester
+		t.setRequester(rs.getString(COL_REQUESTER));
+		// Set task owner
+		t.setOwner(rs.getString(COL_OWNER));
+		
+		// Return task
+		return t;
+	}
 
 }
@@ -34,8 +34,8 @@ public class TaskExecutor implements Runnable {
 	// Get logger
 	private static Logger logger = LogManager.getLogger(TaskExecutor.class);
 	
-	// Task Database
-	private TaskDatabase dbTask;
+	// Task status journal
+	private TaskJournal journal;
 	
 	// Task pointer
 	Task task;
@@ -44,13 +44,14 @@ public class TaskExecutor implements Runnable {
 	/**
 	 * Constructor
 	 * @param t Task to be executed
+	 * @param journal Task status journal
 	 */
-	public TaskExecutor(Task t) {
+	public TaskExecutor(Task t, TaskJournal journal) {
 		// Set task
 		this.task = t;
 		
-		// Task Database instance
-		dbTask = new TaskDatabase();
+		// Task status journal
+		this.journal = journal;
 	}
 	
 	
@@ -60,13 +61,13 @@ public class TaskExecutor implements Runnable {
 		logger.info("Start - Task Id(" + task.getUuid() + ") Status(" + task.getStatus().getName() + ") Type(" + task.getType().getName() + ") Priority(" + task.getPriority().getName() + ") Details(" + task.getDetails() + ")");
 
 		// Update task owner with the real thread executor
-		dbTask.updateOwner(task.getUuid(), VirtualOperatorID.get());
+		journal.updateOwner(task.getUuid(), VirtualOperatorID.get());
 		
 		// Start correct process
 		switch(task.getType()) {
 			case DEBUG:
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.RUNNING);
+				journal.updateStatus(task.getUuid(), TaskStatus.RUNNING);
 
 				// Create process instance
 				DebugProcess debugProcess = new DebugProcess();
@@ -75,7 +76,7 @@ public class TaskExecutor implements Runnable {
 				debugProcess.execute(task);
 				
 				// Update message
-				dbTask.updateResult(task.getUuid(), debugProcess.getTaskStatusResult(), debugProcess.getProcessResult());
+				journal.updateResult(task.getUuid(), debugProcess.getTaskStatusResult(), debugProcess.getProcessResult());
 				
 				// Update task info for log
 				task.setStatus(debugProcess.getTaskStatusResult());
@@ -86,7 +87,7 @@ public class TaskExecutor implements Runnable {
 
 			case SHELL:
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.RUNNING);
+				journal.updateStatus(task.getUuid(), TaskStatus.RUNNING);
 
 				// Create shell instance
 				ShellProcess shellProcess = new ShellProcess();
@@ -95,7 +96,7 @@ public class TaskExecutor implements Runnable {
 				shellProcess.execute(task);
 				
 				// Update message
-				dbTask.updateResult(task.getUuid(), shellProcess.getTaskStatusResult(), shellProcess.getProcessResult());
+				journal.updateResult(task.getUuid(), shellProcess.getTaskStatusResult(), shellProcess.getProcessResult());
 						
 				// Update task info for log
 				task.setStatus(shellProcess.getTaskStatusResult());
@@ -105,7 +106,7 @@ public class TaskExecutor implements Runnable {
 				
 			case JOB_SCRIPT:
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.RUNNING);
+				journal.updateStatus(task.getUuid(), TaskStatus.RUNNING);
 
 				// Create shell instance
 				JobProcessScript jobProcess = new JobProcessScript();
@@ -114,7 +115,7 @@ public class TaskExecutor implements Runnable {
 				jobProcess.execute(task);
 				
 				// Update message
-				dbTask.updateResult(task.getUuid(), jobProcess.getTaskStatusResult(), jobProcess.getProcessResult());
+				journal.updateResult(task.getUuid(), jobProcess.getTaskStatusResult(), jobProcess.getProcessResult());
 				
 				// Update task info for log
 				task.setStatus(jobProcess.getTaskStatusResult());
@@ -124,7 +125,7 @@ public class TaskExecutor implements Runnable {
 				
 			case JOB_BETASYSTEMS_OPEN:
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.RUNNING);
+				journal.updateStatus(task.getUuid(), TaskStatus.RUNNING);
 
 				// Create shell instance
 				JobProcessBetaSystems jobProcessBetaSystemsOpen = new JobProcessBetaSystems(JobType.OPEN);
@@ -133,7 +134,7 @@ public class TaskExecutor implements Runnable {
 				jobProcessBetaSystemsOpen.execute(task);
 				
 				// Update message
-				dbTask.updateResult(task.getUuid(), jobProcessBetaSystemsOpen.getTaskStatusResult(), jobProcessBetaSystemsOpen.getProcessResult());
+				journal.updateResult(task.getUuid(), jobProcessBetaSystemsOpen.getTaskStatusResult(), jobProcessBetaSystemsOpen.getProcessResult());
 				
 				// Update task info for log
 				task.setStatus(jobProcessBetaSystemsOpen.getTaskStatusResult());
@@ -143,7 +144,7 @@ public class TaskExecutor implements Runnable {
 			
 			case JOB_BETASYSTEMS_MAINFRAME:
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.RUNNING);
+				journal.updateStatus(task.getUuid(), TaskStatus.RUNNING);
 
 				// Create shell instance
 				JobProcessBetaSystems jobProcessBetaSystemsMainframe = new JobProcessBetaSystems(JobType.MAINFRAME);
@@ -152,7 +153,7 @@ public class TaskExecutor implements Runnable {
 				jobProcessBetaSystemsMainframe.execute(task);
 				
 				// Update message
-				dbTask.updateResult(task.getUuid(), jobProcessBetaSystemsMainframe.getTaskStatusResult(), jobProcessBetaSystemsMainframe.getProcessResult());
+				journal.updateResult(task.getUuid(), jobProcessBetaSystemsMainframe.getTaskStatusResult(), jobProcessBetaSystemsMainframe.getProcessResult());
 				
 				// Update task info for log
 				task.setStatus(jobProcessBetaSystemsMainframe.getTaskStatusResult());
@@ -165,11 +166,14 @@ public class TaskExecutor implements Runnable {
 				logger.error("Undefined process for task type " + task.getType().getName());
 				
 				// Update task status
-				dbTask.updateStatus(task.getUuid(), TaskStatus.ERROR);
+				journal.updateStatus(task.getUuid(), TaskStatus.ERROR);
 		}
 
 		// Log end task
 		logger.debug("End - Task Id(" + task.getUuid() + ") Status(" + task.getStatus().getName() + ") Result(" + task.getResult() + ") Type(" + task.getType().getName() + ") Priority(" + task.getPriority().getName() + ") Details(" + task.getDetails() + ")");
+		
+		// A thread is free: look for new tasks
+		TaskSubmitter.signal();
 
 	}
 
@@ -0,0 +1,40 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task;
+
+import java.util.concurrent.ExecutorService;
+
+public interface TaskExecutorPool extends ExecutorService {
+	
+	/**
+	 * Get the number of tasks waiting for a thread
+	 * @return Number of tasks
+	 */
+	public int getBacklog();
+	
+	
+	/**
+	 * Get the number of tasks that can be submitted to start soon: 
+	 * the idle threads plus the free places of the backlog
+	 * @return Number of tasks
+	 */
+	public int getFreeCapacity();
+}
@@ -0,0 +1,184 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package elius.virtualoperator.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class TaskExecutorPools {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(TaskExecutorPools.class);
+	
+	// Shared pool, runs the types without a pool of their own
+	private final TaskExecutorService shared;
+	
+	// Pools of a single type
+	private final Map<TaskType, TaskExecutorPool> pools;
+	
+	
+	/**
+	 * Constructor
+	 * @param nThreads Number of threads of the shared pool
+	 * @param maxBacklog Max number of tasks waiting for a thread of the shared pool
+	 */
+	public TaskExecutorPools(int nThreads, int maxBacklog) {
+		// Shared pool
+		shared = new TaskExecutorService(nThreads, maxBacklog);
+		
+		// No pool of a single type yet
+		pools = new EnumMap<TaskType, TaskExecutorPool>(TaskType.class);
+	}
+	
+	
+	/**
+	 * Define a pool for the tasks of a type, so they can't take the threads of the other types
+	 * @param type Task type
+	 * @param nThreads Number of threads
+	 * @param maxBacklog Max number of tasks waiting for a thread
+	 */
+	public void define(TaskType type, int nThreads, int maxBacklog) {
+		// Define pool
+		pools.put(type, new TaskExecutorService(nThreads, maxBacklog));
+		
+		// Log pool
+		logger.debug("Executor pool type(" + type.name() + ") threads(" + nThreads + ") backlog(" + maxBacklog + ")");
+	}
+	
+	
+	/**
+	 * Define a pool running the tasks of a type on virtual threads, for tasks waiting on I/O most of the time
+	 * Every task gets a new virtual thread, a semaphore caps the tasks running together
+	 * Without virtual threads (before Java 21) the pool uses platform threads
+	 * @param type Task type
+	 * @param nThreads Max number of tasks running together
+	 * @param maxBacklog Max number of tasks waiting for a permit
+	 */
+	public void defineVirtual(TaskType type, int nThreads, int maxBacklog) {
+		
+		// Virtual threads factory
+		ThreadFactory factory = virtualThreadFactory("evo-" + type.name().toLowerCase() + "-");
+		
+		// Virtual threads not available
+		if (null == factory) {
+			logger.warn("Virtual threads not available, executor pool type(" + type.name() + ") uses platform threads");
+			define(type, nThreads, maxBacklog);
+			return;
+		}
+		
+		// Define pool
+		pools.put(type, new TaskVirtualExecutorService(nThreads, maxBacklog, factory));
+		
+		// Log pool
+		logger.debug("Executor pool type(" + type.name() + ") virtual threads, max running(" + nThreads + ") backlog(" + maxBacklog + ")");
+	}
+	
+	
+	/**
+	 * Get a factory of virtual threads, looked up at runtime to run on older Java versions too
+	 * @param prefix Thread name prefix
+	 * @return Thread factory or null if virtual threads are not available
+	 */
+	private static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			// Thread.ofVirtual().name(prefix, 0).factory()
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+			virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, prefix, 0L);
+			return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+			
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Not available
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Get the pool running the tasks of a type
+	 * @param type Task type
+	 * @return Pool
+	 */
+	public TaskExecutorPool get(TaskType type) {
+		TaskExecutorPool pool = pools.get(type);
+		return (null != pool) ? pool : shared;
+	}
+	
+	
+	/**
+	 * Get the shared pool, running the types without a pool of their own
+	 * @return Pool
+	 */
+	public TaskExecutorPool getShared() {
+		return shared;
+	}
+	
+	
+	/**
+	 * Get the types with a pool of their own
+	 * @return Task types
+	 */
+	public Set<TaskType> getTypes() {
+		return pools.isEmpty() ? Collections.<TaskType>emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(pools.keySet()));
+	}
+	
+	
+	/**
+	 * Get every pool, the shared one first
+	 * @return Pools
+	 */
+	public List<TaskExecutorPool> getAll() {
+		List<TaskExecutorPool> all = new ArrayList<TaskExecutorPool>();
+		all.add(shared);
+		all.addAll(pools.values());
+		return all;
+	}
+	
+	
+	/**
+	 * Shutdown every pool, running and waiting tasks are completed
+	 */
+	public void shutdown() {
+		for (TaskExecutorPool pool : getAll())
+			pool.shutdown();
+	}
+	
+	
+	/**
+	 * Check if every pool is terminated
+	 * @return True if terminated
+	 */
+	public boolean isTerminated() {
+		for (TaskExecutorPool pool : getAll()) {
+			if (!pool.isTerminated())
+				return false;
+		}
+		return true;
+	}
+}
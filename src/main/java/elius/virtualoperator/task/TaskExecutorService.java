@@ -0,0 +1,134 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package elius.virtualoperator.task;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TaskExecutorService extends ThreadPoolExecutor implements TaskExecutorPool {
+	
+	// Submission sequence, orders tasks with the same priority and time-stamp
+	private final AtomicLong sequence = new AtomicLong();
+	
+	// Max number of tasks waiting for a thread
+	private final int maxBacklog;
+	
+	
+	/**
+	 * Constructor
+	 * Tasks waiting for a thread are started by higher priority, then older first
+	 * @param nThreads Number of threads
+	 * @param maxBacklog Max number of tasks waiting for a thread, used to compute the free capacity
+	 */
+	public TaskExecutorService(int nThreads, int maxBacklog) {
+		// Fixed number of threads, tasks ordered by priority
+		super(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>());
+		
+		// Set max backlog
+		this.maxBacklog = Math.max(0, maxBacklog);
+	}
+	
+	
+	@Override
+	public int getBacklog() {
+		return getQueue().size();
+	}
+	
+	
+	@Override
+	public int getFreeCapacity() {
+		return Math.max(0, getCorePoolSize() + maxBacklog - getActiveCount() - getBacklog());
+	}
+	
+	
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+		// Task of the queue
+		Task task = (runnable instanceof TaskExecutor) ? ((TaskExecutor) runnable).task : null;
+		
+		// Ordered future
+		return new PriorityFuture<T>(runnable, value, task, sequence.getAndIncrement());
+	}
+	
+	
+	/**
+	 * Execute a runnable, ordered after every task
+	 * Runnable not submitted through submit() are wrapped to be ordered in the backlog
+	 */
+	@Override
+	public void execute(Runnable command) {
+		// Already ordered
+		if (command instanceof PriorityFuture)
+			super.execute(command);
+		else
+			super.execute(newTaskFor(command, null));
+	}
+	
+	
+	/**
+	 * Future ordered by task priority (higher first), time-stamp (older first) and submission sequence
+	 * Shared with the virtual threads pool to order its backlog the same way
+	 */
+	static class PriorityFuture<T> extends FutureTask<T> implements Comparable<PriorityFuture<?>> {
+		
+		// Task priority, -1 if not a task
+		private final int priority;
+		
+		// Task time-stamp
+		private final long date;
+		
+		// Submission sequence
+		private final long seq;
+		
+		
+		/**
+		 * Constructor
+		 * @param runnable Runnable
+		 * @param value Result
+		 * @param task Task or null if not a task
+		 * @param seq Submission sequence
+		 */
+		PriorityFuture(Runnable runnable, T value, Task task, long seq) {
+			super(runnable, value);
+			this.priority = ((null != task) && (null != task.getPriority())) ? task.getPriority().getId() : -1;
+			this.date = ((null != task) && (null != task.getDate())) ? task.getDate().getTime() : Long.MAX_VALUE;
+			this.seq = seq;
+		}
+		
+		
+		@Override
+		public int compareTo(PriorityFuture<?> o) {
+			// Higher priority first
+			if (priority != o.priority)
+				return Integer.compare(o.priority, priority);
+			
+			// Older first
+			if (date != o.date)
+				return Long.compare(date, o.date);
+			
+			// Submitted first
+			return Long.compare(seq, o.seq);
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package elius.virtualoperator.task;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.UUID;
+
+public class TaskFilter {
+	
+	// Status, null for any
+	private TaskStatus status;
+	// Type, null for any
+	private TaskType type;
+	// Requester, null for any
+	private String requester;
+	// Owner, null for any
+	private String owner;
+	// Tasks from this time-stamp (included), null for no bound
+	private Timestamp from;
+	// Tasks up to this time-stamp (excluded), null for no bound
+	private Timestamp to;
+	// Time-stamp of the last task of the previous page, null for the first page
+	private Timestamp afterDate;
+	// Id of the last task of the previous page
+	private UUID afterUuid;
+	// Maximum number of tasks of the page
+	private int limit;
+	// Read the details of the request
+	private boolean details;
+	// Read the result of the execution
+	private boolean result;
+	// Read archived tasks
+	private boolean archived;
+	
+	
+	/**
+	 * Constructor
+	 * No filter, every field
+	 * @param limit Maximum number of tasks of the page
+	 */
+	public TaskFilter(int limit) {
+		// Page size
+		this.limit = limit;
+		// Every field
+		details = true;
+		result = true;
+	}
+	
+	
+	/**
+	 * Set the page position from a cursor
+	 * @param cursor Cursor returned with the previous page
+	 * @return 0 cursor set, 1 invalid cursor
+	 */
+	public int setCursor(String cursor) {
+		try {
+			// Decode time-stamp and id
+			String s = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int sep = s.lastIndexOf('|');
+			if (sep < 0)
+				return 1;
+			
+			// Set position
+			afterDate = Timestamp.valueOf(s.substring(0, sep));
+			afterUuid = UUID.fromString(s.substring(sep + 1));
+			
+		} catch (IllegalArgumentException e) {
+			// Invalid cursor
+			return 1;
+		}
+		
+		return 0;
+	}
+	
+	
+	/**
+	 * Get the cursor of the page following a task
+	 * The time-stamp keeps the nanoseconds, to resume exactly after the task
+	 * @param task Last task of the page
+	 * @return Cursor
+	 */
+	public static String cursor(Task task) {
+		String s = task.getDate().toString() + "|" + task.getUuid().toString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	
+	/**
+	 * Get status filter, null for any
+	 * @return Status filter, null for any
+	 */
+	public TaskStatus getStatus() {
+		return status;
+	}
+
+
+	/**
+	 * Set status filter, null for any
+	 * @param status Status filter, null for any
+	 */
+	public void setStatus(TaskStatus status) {
+		this.status = status;
+	}
+
+
+	/**
+	 * Get type filter, null for any
+	 * @return Type filter, null for any
+	 */
+	public TaskType getType() {
+		return type;
+	}
+
+
+	/**
+	 * Set type filter, null for any
+	 * @param type Type filter, null for any
+	 */
+	public void setType(TaskType type) {
+		this.type = type;
+	}
+
+
+	/**
+	 * Get requester filter, null for any
+	 * @return Requester filter, null for any
+	 */
+	public String getRequester() {
+		return requester;
+	}
+
+
+	/**
+	 * Set requester filter, null for any
+	 * @param requester Requester filter, null for any
+	 */
+	public void setRequester(String requester) {
+		this.requester = requester;
+	}
+
+
+	/**
+	 * Get owner filter, null for any
+	 * @return Owner filter, null for any
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+
+	/**
+	 * Set owner filter, null for any
+	 * @param owner Owner filter, null for any
+	 */
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+
+	/**
+	 * Get first time-stamp of the tasks (included), null for no bound
+	 * @return First time-stamp of the tasks (included), null for no bound
+	 */
+	public Timestamp getFrom() {
+		return from;
+	}
+
+
+	/**
+	 * Set first time-stamp of the tasks (included), null for no bound
+	 * @param from First time-stamp of the tasks (included), null for no bound
+	 */
+	public void setFrom(Timestamp from) {
+		this.from = from;
+	}
+
+
+	/**
+	 * Get time-stamp bound of the tasks (excluded), null for no bound
+	 * @return Time-stamp bound of the tasks (excluded), null for no bound
+	 */
+	public Timestamp getTo() {
+		return to;
+	}
+
+
+	/**
+	 * Set time-stamp bound of the tasks (excluded), null for no bound
+	 * @param to Time-stamp bound of the tasks (excluded), null for no bound
+	 */
+	public void setTo(Timestamp to) {
+		this.to = to;
+	}
+
+
+	/**
+	 * Get time-stamp of the last task of the previous page, null for the first page
+	 * @return Time-stamp of the last task of the previous page, null for the first page
+	 */
+	public Timestamp getAfterDate() {
+		return afterDate;
+	}
+
+
+	/**
+	 * Get id of the last task of the previous page
+	 * @return Id of the last task of the previous page
+	 */
+	public UUID getAfterUuid() {
+		return afterUuid;
+	}
+
+
+	/**
+	 * Get maximum number of tasks of the page
+	 * @return Maximum number of tasks of the page
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+
+	/**
+	 * Check if the details of the request are read
+	 * @return True if the details of the request are read
+	 */
+	public boolean isDetails() {
+		return details;
+	}
+
+
+	/**
+	 * Set if the details of the request are read
+	 * @param details True if the details of the request are read
+	 */
+	public void setDetails(boolean details) {
+		this.details = details;
+	}
+
+
+	/**
+	 * Check if the result of the execution is read
+	 * @return True if the result of the execution is read
+	 */
+	public boolean isResult() {
+		return result;
+	}
+
+
+	/**
+	 * Set if the result of the execution is read
+	 * @param result True if the result of the execution is read
+	 */
+	public void setResult(boolean result) {
+		this.result = result;
+	}
+
+
+	/**
+	 * Check if the archived tasks are read
+	 * @return True if the archived tasks are read
+	 */
+	public boolean isArchived() {
+		return archived;
+	}
+
+
+	/**
+	 * Set if the archived tasks are read
+	 * @param archived True if the archived tasks are read
+	 */
+	public void setArchived(boolean archived) {
+		this.archived = archived;
+	}
+	
+}
@@ -0,0 +1,413 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.db.DBConnection;
+
+public class TaskJournal {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(TaskJournal.class);
+	
+	// Update task status, owner and result: null parameters keep the current value
+	private static final String SQL_UPDATE = "UPDATE TASK_QUEUE SET STATUS = COALESCE(?, STATUS), OWNER = COALESCE(?, OWNER), RESULT = COALESCE(?, RESULT) WHERE ID = ?";
+	
+	// Max number of flushes a change of a task can fail before it is dropped
+	private static final int MAX_ATTEMPTS = 3;
+	
+	// Changes not written yet, one per task in arrival order
+	private Map<UUID, Change> pending;
+	
+	// Number of changes that triggers a flush
+	private int maxSize;
+	
+	// Max number of tasks with changes not written, the oldest are dropped over it
+	private int maxPending;
+	
+	// Flushes run one at a time, so writes of the same task never overtake each other
+	private final Object flushLock;
+	
+	// Scheduled flush
+	private ScheduledFuture<?> scheduledFlush;
+	
+	
+	/**
+	 * Constructor
+	 * @param maxSize Number of tasks with pending changes that triggers a flush, 1 to write every change immediately
+	 * @param maxPending Max number of tasks with changes not written while the database is not available
+	 */
+	public TaskJournal(int maxSize, int maxPending) {
+		
+		// Pending changes
+		pending = new LinkedHashMap<UUID, Change>();
+		
+		// Flush threshold
+		this.maxSize = Math.max(1, maxSize);
+		
+		// Max pending changes, at least the flush threshold
+		this.maxPending = Math.max(this.maxSize, maxPending);
+		
+		// Flush lock
+		flushLock = new Object();
+	}
+	
+	
+	/**
+	 * Start the periodic flush
+	 * @param scheduler Scheduler service
+	 * @param interval Flush interval (milliseconds)
+	 */
+	public void start(ScheduledExecutorService scheduler, long interval) {
+		
+		// Schedule flush
+		scheduledFlush = scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				flush();
+			} catch (RuntimeException e) {
+				// Keep the flush scheduled
+				logger.error("Journal flush error: " + e.getMessage());
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * Stop the periodic flush and write all the pending changes
+	 */
+	public void close() {
+		
+		// Stop periodic flush
+		if(null != scheduledFlush)
+			scheduledFlush.cancel(false);
+		
+		// Last flush
+		flush();
+		
+		// Log changes not written
+		synchronized (this) {
+			if(!pending.isEmpty())
+				logger.error("Journal closed with task changes not written(" + pending.size() + ")");
+		}
+	}
+	
+	
+	/**
+	 * Update task owner 
+	 * @param uuid Task UUID
+	 * @param owner Owner
+	 */
+	public void updateOwner(UUID uuid, String owner) {
+		add(uuid, null, owner, null);
+	}
+	
+	
+	/**
+	 * Update task status 
+	 * @param uuid Task UUID
+	 * @param status New task status
+	 */
+	public void updateStatus(UUID uuid, TaskStatus status) {
+		add(uuid, status, null, null);
+	}
+	
+	
+	/**
+	 * Update task result 
+	 * @param uuid Task UUID
+	 * @param status New task status
+	 * @param result Task result
+	 */
+	public void updateResult(UUID uuid, TaskStatus status, String result) {
+		add(uuid, status, null, result);
+	}
+	
+	
+	/**
+	 * Add a change, merged with the pending change of the same task
+	 * @param uuid Task UUID
+	 * @param status New task status, null to keep it
+	 * @param owner New owner, null to keep it
+	 * @param result New result, null to keep it
+	 */
+	private void add(UUID uuid, TaskStatus status, String owner, String result) {
+		
+		// Log change
+		logger.debug("Journal task(" + uuid + ") status(" + ((null != status) ? status.getName() : "") + ") owner(" + ((null != owner) ? owner : "") + ") result(" + ((null != result) ? result : "") + ")");
+		
+		// Number of tasks with pending changes
+		int size;
+		
+		synchronized (this) {
+			
+			// Merge over the pending change
+			pending.merge(uuid, new Change(status, owner, result), (older, newer) -> newer.over(older));
+			
+			size = pending.size();
+		}
+		
+		// Threshold reached
+		if(size >= maxSize)
+			flush();
+	}
+	
+	
+	/**
+	 * Write all the pending changes with a single batch
+	 * If the batch fails every change is written on its own: the changes that fail
+	 * are kept for the next flush up to MAX_ATTEMPTS times, then dropped
+	 * @return 0 Successfully, 1 Error: changes not written are kept for the next flush
+	 */
+	public int flush() {
+		
+		synchronized (flushLock) {
+			
+			// Take pending changes
+			Map<UUID, Change> changes;
+			synchronized (this) {
+				
+				// Nothing to write
+				if(pending.isEmpty())
+					return 0;
+				
+				changes = pending;
+				pending = new LinkedHashMap<UUID, Change>();
+			}
+			
+			// Log
+			logger.trace("Journal flush, tasks(" + changes.size() + ")");
+			
+			// Changes not written
+			Map<UUID, Change> failed = new LinkedHashMap<UUID, Change>();
+			
+			try (Connection connection = DBConnection.get()) {
+				
+				// Single transaction
+				connection.setAutoCommit(false);
+				
+				try (PreparedStatement statement = connection.prepareStatement(SQL_UPDATE)) {
+					
+					// Add changes to the batch
+					for (Map.Entry<UUID, Change> e : changes.entrySet()) {
+						setChange(statement, e.getKey(), e.getValue());
+						statement.addBatch();
+					}
+					
+					// Write
+					statement.executeBatch();
+					connection.commit();
+					
+				} catch (SQLException e) {
+					
+					// Undo partial writes
+					connection.rollback();
+					
+					// Log error
+					logger.warn("Journal batch error, tasks(" + changes.size() + "), writing every task on its own: " + e.getMessage());
+					
+					// Write every change on its own, so a bad change doesn't block the others
+					connection.setAutoCommit(true);
+					try (PreparedStatement statement = connection.prepareStatement(SQL_UPDATE)) {
+						for (Map.Entry<UUID, Change> c : changes.entrySet()) {
+							try {
+								setChange(statement, c.getKey(), c.getValue());
+								statement.executeUpdate();
+							} catch (SQLException ex) {
+								// Log error
+								logger.error("Journal write error, task(" + c.getKey() + "): " + ex.getMessage());
+								failed.put(c.getKey(), c.getValue().failed());
+							}
+						}
+					}
+				}
+				
+			} catch (SQLException e) {
+				
+				// Log error: the database is not available, every change is kept
+				logger.error("Journal flush error, tasks(" + changes.size() + ")");
+				logger.error(e.getMessage());
+				
+				// Keep changes
+				keep(changes);
+				
+				// Return error
+				return 1;
+			}
+			
+			// Keep the changes not written, the ones that failed too many times are dropped
+			if(!failed.isEmpty()) {
+				failed.values().removeIf(c -> c.attempts >= MAX_ATTEMPTS);
+				keep(failed);
+			}
+			
+			// Log
+			logger.debug("Journal flushed, tasks(" + changes.size() + ") failed(" + failed.size() + ")");
+			
+			// Return error if some changes are kept
+			return failed.isEmpty() ? 0 : 1;
+		}
+	}
+	
+	
+	/**
+	 * Put back changes not written, under the ones received in the meantime
+	 * Over the max number of pending tasks the oldest changes are dropped
+	 * @param changes Changes not written
+	 */
+	private synchronized void keep(Map<UUID, Change> changes) {
+		
+		// Merge the changes received in the meantime
+		for (Map.Entry<UUID, Change> received : pending.entrySet())
+			changes.merge(received.getKey(), received.getValue(), (older, newer) -> newer.over(older));
+		pending = changes;
+		
+		// Drop the oldest changes over the max
+		Iterator<Map.Entry<UUID, Change>> it = pending.entrySet().iterator();
+		while ((pending.size() > maxPending) && it.hasNext()) {
+			Map.Entry<UUID, Change> e = it.next();
+			logger.error("Journal full, change of task(" + e.getKey() + ") status(" + ((null != e.getValue().status) ? e.getValue().status.getName() : "") + ") not written");
+			it.remove();
+		}
+	}
+	
+	
+	/**
+	 * Set the parameters of the update of a task
+	 * @param statement Statement
+	 * @param uuid Task UUID
+	 * @param c Change
+	 * @throws SQLException Error setting the parameters
+	 */
+	private static void setChange(PreparedStatement statement, UUID uuid, Change c) throws SQLException {
+		
+		// Status
+		if(null != c.status)
+			statement.setInt(1, c.status.getId());
+		else
+			statement.setNull(1, Types.INTEGER);
+		
+		// Owner
+		if(null != c.owner)
+			statement.setString(2, c.owner);
+		else
+			statement.setNull(2, Types.VARCHAR);
+		
+		// Result
+		if(null != c.result)
+			statement.setString(3, c.result);
+		else
+			statement.setNull(3, Types.VARCHAR);
+		
+		// Task
+		statement.setString(4, uuid.toString());
+	}
+	
+	
+	/**
+	 * Get the number of tasks with pending changes
+	 * @return Number of tasks
+	 */
+	public synchronized int size() {
+		return pending.size();
+	}
+	
+	
+	/**
+	 * Pending change of a task
+	 */
+	private static class Change {
+		
+		// New status, null to keep it
+		private final TaskStatus status;
+		
+		// New owner, null to keep it
+		private final String owner;
+		
+		// New result, null to keep it
+		private final String result;
+		
+		// Flushes failed writing the change
+		private final int attempts;
+		
+		
+		/**
+		 * Constructor
+		 * @param status New status
+		 * @param owner New owner
+		 * @param result New result
+		 */
+		Change(TaskStatus status, String owner, String result) {
+			this(status, owner, result, 0);
+		}
+		
+		
+		/**
+		 * Constructor
+		 * @param status New status
+		 * @param owner New owner
+		 * @param result New result
+		 * @param attempts Flushes failed
+		 */
+		private Change(TaskStatus status, String owner, String result, int attempts) {
+			this.status = status;
+			this.owner = owner;
+			this.result = result;
+			this.attempts = attempts;
+		}
+		
+		
+		/**
+		 * Count a failed flush
+		 * @return Change with one more failed flush
+		 */
+		Change failed() {
+			return new Change(status, owner, result, attempts + 1);
+		}
+		
+		
+		/**
+		 * Merge this change over an older one, the failed flushes of the older one are kept
+		 * @param older Older change
+		 * @return Merged change
+		 */
+		Change over(Change older) {
+			return new Change((null != status) ? status : older.status,
+								(null != owner) ? owner : older.owner,
+								(null != result) ? result : older.result,
+								Math.max(attempts, older.attempts));
+		}
+	}
+	
+}
@@ -30,6 +30,9 @@ public enum TaskPriority {
 	private final String name;
 	// Priority it
 	private final int id;
+	
+	// Lookup table indexed by id
+	private static final TaskPriority[] BY_ID = byId();
 
 	
 	/**
@@ -67,9 +70,22 @@ public enum TaskPriority {
 	 * @return Priority
 	 */
 	public static TaskPriority getById(int id) {
-	    for(TaskPriority e : values()) {
-	        if(e.id == id) return e;
-	    }
+	    if((id >= 0) && (id < BY_ID.length) && (null != BY_ID[id])) return BY_ID[id];
 	    return UNDEFINED;
 	}
+	
+	
+	/**
+	 * Build the lookup table indexed by id
+	 * @return Lookup table
+	 */
+	private static TaskPriority[] byId() {
+		int max = 0;
+	    for(TaskPriority e : values())
+	    	max = Math.max(max, e.id);
+	    TaskPriority[] table = new TaskPriority[max + 1];
+	    for(TaskPriority e : values())
+	    	table[e.id] = e;
+	    return table;
+	}
 };
@@ -34,6 +34,9 @@ public enum TaskStatus {
 	private final String name;
 	// Status id
 	private final int id;
+	
+	// Lookup table indexed by id
+	private static final TaskStatus[] BY_ID = byId();
 
 	
 	/**
@@ -71,9 +74,22 @@ public enum TaskStatus {
 	 * @return Status
 	 */
 	public static TaskStatus getById(int id) {
-	    for(TaskStatus e : values()) {
-	        if(e.id == id) return e;
-	    }
+	    if((id >= 0) && (id < BY_ID.length) && (null != BY_ID[id])) return BY_ID[id];
 	    return UNKNOWN;
 	}
+	
+	
+	/**
+	 * Build the lookup table indexed by id
+	 * @return Lookup table
+	 */
+	private static TaskStatus[] byId() {
+		int max = 0;
+	    for(TaskStatus e : values())
+	    	max = Math.max(max, e.id);
+	    TaskStatus[] table = new TaskStatus[max + 1];
+	    for(TaskStatus e : values())
+	    	table[e.id] = e;
+	    return table;
+	}
 }
@@ -20,9 +20,13 @@
 package elius.virtualoperator.task;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,7 +34,6 @@ import org.apache.logging.log4j.Logger;
 
 import elius.virtualoperator.VirtualOperatorAttributes;
 import elius.virtualoperator.VirtualOperatorID;
-import elius.virtualoperator.lock.LockManager;
 import elius.webapp.framework.properties.PropertiesManager;
 import elius.webapp.framework.properties.PropertiesManagerFactory;
 
@@ -42,8 +45,14 @@ public class TaskSubmitter implements Runnable {
 	// Task Database
 	private TaskDatabase dbTask;
 	
-	// Pointer to the executor service
-	private ExecutorService executor;
+	// Pointer to the executor pools
+	private TaskExecutorPools pools;
+	
+	// Pool claiming first, changed at every run so no pool always takes the tasks to own
+	private int firstPool;
+	
+	// Task status journal
+	private TaskJournal journal;
 	
 	// The current list of task submitted by the executor
 	private List<Future<?>> cFutures;
@@ -51,22 +60,64 @@ public class TaskSubmitter implements Runnable {
 	// Property file
 	private PropertiesManager appProperties;
 	
-	// Lock Manager
-	private LockManager lockManager;
+	// Submitter woken up by signal()
+	private static volatile TaskSubmitter active;
+	
+	// Scheduler of the submitter runs
+	private ScheduledExecutorService scheduler;
+	
+	// Next scheduled run, null while running
+	private ScheduledFuture<?> next;
+	
+	// Signal received while running or waiting for the next run
+	private boolean signaled;
+	
+	// Run in progress
+	private boolean running;
+	
+	// Start of the last run (milliseconds)
+	private long lastRun;
+	
+	// Submitter stopped
+	private boolean stopped;
+	
+	// Min delay between runs (milliseconds), used while tasks are found
+	private long minInterval;
+	
+	// Max delay between runs (milliseconds), reached when the queue is idle
+	private long maxInterval;
+	
+	// Delay before the next run (milliseconds)
+	private long interval;
 	
 	
 	/**
 	 * Constructor
-	 * @param executor Executor service pointer
+	 * @param pools Executor pools pointer
+	 * @param journal Task status journal used by the executed tasks
+	 * @param scheduler Scheduler service pointer
+	 * @param minInterval Min delay between runs (seconds)
+	 * @param maxInterval Max delay between runs (seconds)
 	 */
-	public TaskSubmitter(ExecutorService executor) {
+	public TaskSubmitter(TaskExecutorPools pools, TaskJournal journal, ScheduledExecutorService scheduler, int minInterval, int maxInterval) {
 		// Error Checking
-		if(null == executor) {
-			logger.error("Null executor service passed");
+		if(null == pools) {
+			logger.error("Null executor pools passed");
 		}
 
 		// Assign pointer
-		this.executor = executor;
+		this.pools = pools;
+		
+		// Assign journal
+		this.journal = journal;
+		
+		// Assign scheduler
+		this.scheduler = scheduler;
+		
+		// Intervals
+		this.maxInterval = TimeUnit.SECONDS.toMillis(Math.max(1, maxInterval));
+		this.minInterval = Math.min(TimeUnit.SECONDS.toMillis(Math.max(1, minInterval)), this.maxInterval);
+		this.interval = this.minInterval;
 		
 		// The current list of task submitted by the executor
 		cFutures = new ArrayList<Future<?>>();
@@ -76,18 +127,168 @@ public class TaskSubmitter implements Runnable {
 		
 		// Application properties
 		appProperties = PropertiesManagerFactory.getInstance(VirtualOperatorAttributes.EVO_PROPERTIES_FILE);
+	}
+	
+	/**
+	 * Start the submitter: the first run is immediate
+	 */
+	public void start() {
 		
-		// Create lock manager
-		lockManager = new LockManager();
+		// Receive signals
+		active = this;
 		
-		// Initialize lock manager
-		lockManager.initialization();
+		// First run
+		schedule(0);
 	}
 	
+	
+	/**
+	 * Stop the submitter: signals are ignored and the next run is cancelled
+	 */
+	public synchronized void stop() {
+		
+		// Ignore signals
+		if(this == active)
+			active = null;
+		
+		// Stop scheduling
+		stopped = true;
+		
+		// Cancel next run
+		if(null != next)
+			next.cancel(false);
+	}
+	
+	
+	/**
+	 * Wake up the submitter, for example when a task is added to the queue or a task ends
+	 * Signals are coalesced: runs start at least min interval apart
+	 */
+	public static void signal() {
+		
+		// Active submitter
+		TaskSubmitter submitter = active;
+		
+		// Submitter not started
+		if(null == submitter)
+			return;
+		
+		// Run as soon as possible
+		submitter.wakeUp();
+	}
+	
+	
+	/**
+	 * Run as soon as possible, but not before min interval from the last run
+	 */
+	private synchronized void wakeUp() {
+		
+		// Already signaled: the run is already anticipated
+		if(signaled)
+			return;
+		
+		// Run again at the end of the current run
+		signaled = true;
+		
+		// Anticipate next run, the current one schedules it when it ends
+		if(!running)
+			schedule(signalDelay());
+	}
+	
+	
+	/**
+	 * Get the delay of a run asked by a signal
+	 * @return Delay (milliseconds), min interval from the start of the last run
+	 */
+	private long signalDelay() {
+		return Math.max(0, lastRun + minInterval - System.currentTimeMillis());
+	}
+	
+	
+	/**
+	 * Schedule the next run, unless one is already scheduled earlier
+	 * @param delay Delay (milliseconds)
+	 */
+	private synchronized void schedule(long delay) {
+		
+		// Submitter or scheduler stopped
+		if(stopped || scheduler.isShutdown())
+			return;
+		
+		// Already scheduled
+		if((null != next) && !next.isDone()) {
+			
+			// Scheduled earlier
+			if(next.getDelay(TimeUnit.MILLISECONDS) <= delay)
+				return;
+			
+			// Anticipate
+			next.cancel(false);
+		}
+		
+		// Schedule run
+		next = scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+	}
+	
+	
 	@Override
 	public void run() {
+		
+		// Signals received from now on need a new run
+		synchronized (this) {
+			next = null;
+			signaled = false;
+			running = true;
+			lastRun = System.currentTimeMillis();
+		}
+		
+		// Number of owned tasks, -1 if no capacity
+		int nOwned = -1;
+		
+		try {
+			
+			// Own tasks
+			nOwned = submit();
+			
+		} catch (RuntimeException e) {
+			
+			// Log error and keep scheduling
+			logger.error("Submitter error: " + e.getMessage());
+			
+		} finally {
+			
+			// Tasks found: more can be waiting, otherwise slow down up to max interval
+			if(nOwned > 0)
+				interval = minInterval;
+			else
+				interval = Math.min(interval * 2, maxInterval);
+			
+			// Delay before the next run, shorter if a signal was received while running
+			long delay;
+			synchronized (this) {
+				
+				// Schedule next run
+				running = false;
+				delay = signaled ? signalDelay() : interval;
+				schedule(delay);
+			}
+			
+			// Log
+			logger.trace("Next submitter run in(" + delay + ") ms");
+		}
+	}
+	
+	
+	/**
+	 * Own new tasks and submit them for the execution
+	 * @return The number of owned tasks, -1 if no task can be owned
+	 */
+	private int submit() {
 		// Log search start
 		logger.debug("Submitter started");
+		
+		// Number of owned tasks
+		int nOwned = -1;
 			
 		// Set task number to own 
 		int nTasksToOwn = appProperties.getInt(VirtualOperatorAttributes.PROP_TASK_SUBMITTER_TASK_TO_OWN, VirtualOperatorAttributes.DEFAULT_TASK_SUBMITTER_TASK_TO_OWN);
@@ -95,35 +296,58 @@ public class TaskSubmitter implements Runnable {
 		// Reorganize task list
 		int runningTasks = taskReorg();
 		
+		// Tasks that can be owned
+		int nTasks = nTasksToOwn - runningTasks;
+		
 		// Can own tasks
-		if ((nTasksToOwn - runningTasks) > 0) {
+		if (nTasks > 0) {
 
-			// Get lock
-			if(0 != lockManager.lock())
-				return;
+			// No task owned yet
+			nOwned = 0;
 			
-	        // Fetch first x new tasks - the task that are currently running
-			List<Task> tasks = dbTask.getNew(nTasksToOwn - runningTasks);
+			// Types with a pool of their own, the shared pool (null) runs every other type
+			Set<TaskType> types = pools.getTypes();
+			List<TaskType> keys = new ArrayList<TaskType>();
+			keys.add(null);
+			keys.addAll(types);
 			
-			// Submit all task for the execution
-			if(null != tasks) {
+			// Scroll pools, starting from a different one at every run
+			firstPool = (firstPool + 1) % keys.size();
+			for (int n = 0; (n < keys.size()) && (nOwned < nTasks); n++) {
 				
-				// Scroll tasks list
-				for(Task t : tasks) {
-					
-					// Update task status and set the current owner that will change during task execution
-					dbTask.own(t.getUuid(), TaskStatus.OWNED, VirtualOperatorID.get());
-					
-					// Submit task for the execution
-					Future<?> f = executor.submit(new TaskExecutor(t));
+				// Pool type
+				TaskType type = keys.get((firstPool + n) % keys.size());
+				
+				// Tasks of the pool: no more than the pool can start soon
+				int nPool = Math.min(nTasks - nOwned, (null == type) ? pools.getShared().getFreeCapacity() : pools.get(type).getFreeCapacity());
+				if (nPool <= 0)
+					continue;
+				
+		        // Claim first x new tasks of the pool types, the owner will change during task execution
+				List<Task> tasks = (null == type) ? dbTask.claim(nPool, VirtualOperatorID.get(), types, true) 
+												  : dbTask.claim(nPool, VirtualOperatorID.get(), EnumSet.of(type), false);
+				
+				// Submit all task for the execution
+				if(null != tasks) {
 					
-					// Add future to list
-					cFutures.add(f);
+					// Scroll tasks list
+					for(Task t : tasks) {
+						
+						// Submit task for the execution to the pool of its type
+						Future<?> f = pools.get(t.getType()).submit(new TaskExecutor(t, journal));
+						
+						// Add future to list
+						cFutures.add(f);
+						
+						// Count task
+						nOwned++;
+					}
+				} else {
+					// Database error, no other pool is claimed in this run
+					logger.error("Unable to claim tasks, retry at the next run");
+					break;
 				}
 			}
-
-			// Release lock
-			lockManager.unlock();
 			
 		} else {
 			// Log that no task will be owned because the old one are still running
@@ -134,6 +358,9 @@ public class TaskSubmitter implements Runnable {
 		
 		// Log search start
 		logger.debug("Submitter ended");	
+		
+		// Return owned tasks
+		return nOwned;
 	}
 
 	
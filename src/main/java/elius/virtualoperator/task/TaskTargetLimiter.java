@@ -0,0 +1,132 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+package elius.virtualoperator.task;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class TaskTargetLimiter {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(TaskTargetLimiter.class);
+	
+	// Limiter of every target system
+	private static final ConcurrentHashMap<String, TaskTargetLimiter> targets = new ConcurrentHashMap<String, TaskTargetLimiter>();
+	
+	// Target system
+	private final String target;
+	
+	// Max number of concurrent works on the target, 0 no limit
+	private final int maxConcurrency;
+	
+	// Permits of the target, fair to serve tasks in arrival order. Null if no limit
+	private final Semaphore permits;
+	
+	
+	/**
+	 * Constructor
+	 * @param target Target system
+	 * @param maxConcurrency Max number of concurrent works on the target, 0 no limit
+	 */
+	private TaskTargetLimiter(String target, int maxConcurrency) {
+		this.target = target;
+		this.maxConcurrency = Math.max(0, maxConcurrency);
+		this.permits = (this.maxConcurrency > 0) ? new Semaphore(this.maxConcurrency, true) : null;
+	}
+	
+	
+	/**
+	 * Define the limit of a target system and get its limiter
+	 * The limiter of the target is shared while the limit is the same. A new limit replaces it: 
+	 * works already running release their permit to the limiter they acquired it from
+	 * @param target Target system, for example the host of a remote service
+	 * @param maxConcurrency Max number of concurrent works on the target, 0 no limit
+	 * @return Limiter of the target
+	 */
+	public static TaskTargetLimiter define(String target, int maxConcurrency) {
+		
+		// Limiter of the target, replaced if the limit changed
+		return targets.compute(target, (t, limiter) -> {
+			
+			// Same limit
+			if ((null != limiter) && (limiter.maxConcurrency == Math.max(0, maxConcurrency)))
+				return limiter;
+			
+			// Log new limit
+			if (null != limiter)
+				logger.info("Limit of target(" + t + ") changed from(" + limiter.maxConcurrency + ") to(" + maxConcurrency + ")");
+			
+			// New limiter
+			return new TaskTargetLimiter(t, maxConcurrency);
+		});
+	}
+	
+	
+	/**
+	 * Get the max number of concurrent works on the target
+	 * @return Max number of works, 0 no limit
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	
+	
+	/**
+	 * Wait for a permit to work on the target system, whatever the number of threads running tasks
+	 * @return 0 Permit acquired, 1 Interrupted
+	 */
+	public int acquire() {
+		
+		// No limit
+		if (null == permits)
+			return 0;
+		
+		try {
+			// Wait for a permit
+			permits.acquire();
+			
+		} catch (InterruptedException e) {
+			// Log error
+			logger.error("Interrupted waiting for target(" + target + ")");
+			
+			// Keep interrupted status
+			Thread.currentThread().interrupt();
+			
+			// Return error
+			return 1;
+		}
+		
+		return 0;
+	}
+	
+	
+	/**
+	 * Release a permit acquired from this limiter
+	 */
+	public void release() {
+		
+		// Release permit
+		if (null != permits)
+			permits.release();
+	}
+}
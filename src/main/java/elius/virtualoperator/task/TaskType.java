@@ -33,6 +33,9 @@ public enum TaskType {
 	private final String name;
 	// Type id
 	private final int id;
+	
+	// Lookup table indexed by id
+	private static final TaskType[] BY_ID = byId();
 
 	
 	/**
@@ -70,9 +73,22 @@ public enum TaskType {
 	 * @return Type
 	 */
 	public static TaskType getById(int id) {
-	    for(TaskType e : values()) {
-	        if(e.id == id) return e;
-	    }
+	    if((id >= 0) && (id < BY_ID.length) && (null != BY_ID[id])) return BY_ID[id];
 	    return UNKNOWN;
 	}
+	
+	
+	/**
+	 * Build the lookup table indexed by id
+	 * @return Lookup table
+	 */
+	private static TaskType[] byId() {
+		int max = 0;
+	    for(TaskType e : values())
+	    	max = Math.max(max, e.id);
+	    TaskType[] table = new TaskType[max + 1];
+	    for(TaskType e : values())
+	    	table[e.id] = e;
+	    return table;
+	}
 };
@@ -0,0 +1,289 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.task.TaskExecutorService.PriorityFuture;
+
+public class TaskVirtualExecutorService extends AbstractExecutorService implements TaskExecutorPool {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(TaskVirtualExecutorService.class);
+	
+	// Submission sequence, orders tasks with the same priority and time-stamp
+	private final AtomicLong sequence = new AtomicLong();
+	
+	// Factory of a new thread for every task
+	private final ThreadFactory threadFactory;
+	
+	// Max number of tasks running together
+	private final int nThreads;
+	
+	// Max number of tasks waiting for a thread
+	private final int maxBacklog;
+	
+	// Permits of the running tasks
+	private final Semaphore permits;
+	
+	// Tasks waiting for a permit, higher priority then older first
+	private final PriorityBlockingQueue<Runnable> backlog = new PriorityBlockingQueue<Runnable>();
+	
+	// Threads running a task
+	private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+	
+	// Shutdown requested
+	private volatile boolean shutdown = false;
+	
+	
+	/**
+	 * Constructor
+	 * Every task runs on a thread of its own, created when the task starts and ended with it
+	 * Tasks waiting for a permit are started by higher priority, then older first
+	 * @param nThreads Max number of tasks running together
+	 * @param maxBacklog Max number of tasks waiting for a permit, used to compute the free capacity
+	 * @param threadFactory Factory of the threads, usually of virtual threads
+	 */
+	public TaskVirtualExecutorService(int nThreads, int maxBacklog, ThreadFactory threadFactory) {
+		// Set limits
+		this.nThreads = Math.max(1, nThreads);
+		this.maxBacklog = Math.max(0, maxBacklog);
+		
+		// Permits of the running tasks
+		this.permits = new Semaphore(this.nThreads);
+		
+		// Set factory
+		this.threadFactory = threadFactory;
+	}
+	
+	
+	/**
+	 * Get the number of running tasks
+	 * @return Number of tasks
+	 */
+	public int getActiveCount() {
+		return nThreads - permits.availablePermits();
+	}
+	
+	
+	@Override
+	public int getBacklog() {
+		return backlog.size();
+	}
+	
+	
+	@Override
+	public int getFreeCapacity() {
+		return Math.max(0, nThreads + maxBacklog - getActiveCount() - getBacklog());
+	}
+	
+	
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+		// Task of the queue
+		Task task = (runnable instanceof TaskExecutor) ? ((TaskExecutor) runnable).task : null;
+		
+		// Ordered future
+		return new PriorityFuture<T>(runnable, value, task, sequence.getAndIncrement());
+	}
+	
+	
+	/**
+	 * Execute a runnable on a thread of its own, as soon as a permit is free
+	 * Runnable not submitted through submit() are wrapped to be ordered in the backlog
+	 */
+	@Override
+	public void execute(Runnable command) {
+		// No new task after shutdown
+		if (shutdown)
+			throw new RejectedExecutionException("Executor shutdown");
+		
+		// Wait in the backlog, ordered
+		backlog.add((command instanceof PriorityFuture) ? command : newTaskFor(command, null));
+		
+		// Start tasks
+		dispatch();
+	}
+	
+	
+	/**
+	 * Start the first tasks of the backlog while permits are free
+	 */
+	private void dispatch() {
+		
+		// Scroll free permits
+		while (permits.tryAcquire()) {
+			
+			// First task of the backlog
+			Runnable next = backlog.poll();
+			
+			// Backlog empty
+			if (null == next) {
+				// Give permit back
+				permits.release();
+				
+				// Check a task added meanwhile, it could find no free permit
+				if (backlog.isEmpty())
+					break;
+				
+				continue;
+			}
+			
+			// Start task
+			start(next);
+		}
+		
+		// Wake up the termination waits
+		if (isTerminated()) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Start a task on a new thread, the permit is given back when the task ends
+	 * @param command Task
+	 */
+	private void start(Runnable command) {
+		
+		// Thread of the task
+		Thread thread = null;
+		
+		try {
+			// New thread
+			thread = threadFactory.newThread(() -> {
+				try {
+					// Run task
+					command.run();
+				} finally {
+					// Task ended
+					running.remove(Thread.currentThread());
+					permits.release();
+					
+					// Start the next tasks
+					dispatch();
+				}
+			});
+			
+			// Start thread
+			if (null != thread) {
+				running.add(thread);
+				thread.start();
+				return;
+			}
+			
+			// Log error
+			logger.error("Thread not created by factory");
+			
+		} catch (RuntimeException | OutOfMemoryError e) {
+			// Log error
+			logger.error("Thread not started: " + e.getMessage());
+			
+			// Not running
+			if (null != thread)
+				running.remove(thread);
+		}
+		
+		// Task not run
+		if (command instanceof PriorityFuture)
+			((PriorityFuture<?>) command).cancel(false);
+		
+		// Give permit back
+		permits.release();
+	}
+	
+	
+	@Override
+	public void shutdown() {
+		// No new task, running and waiting tasks are completed
+		shutdown = true;
+		
+		// Wake up the termination waits
+		dispatch();
+	}
+	
+	
+	@Override
+	public List<Runnable> shutdownNow() {
+		// No new task
+		shutdown = true;
+		
+		// Remove waiting tasks
+		List<Runnable> waiting = new ArrayList<Runnable>();
+		backlog.drainTo(waiting);
+		
+		// Interrupt running tasks
+		for (Thread thread : running)
+			thread.interrupt();
+		
+		// Wake up the termination waits
+		dispatch();
+		
+		return waiting;
+	}
+	
+	
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+	
+	
+	@Override
+	public boolean isTerminated() {
+		return shutdown && backlog.isEmpty() && (0 == getActiveCount());
+	}
+	
+	
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		// Wait deadline
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		
+		synchronized (this) {
+			// Wait for the running and waiting tasks
+			while (!isTerminated()) {
+				long wait = deadline - System.nanoTime();
+				if (wait <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(this, wait);
+			}
+		}
+		
+		return true;
+	}
+}
@@ -33,10 +33,55 @@ public class JobAttributes {
 	
 	// Default -  Job script, log max size (bytes): used to prevent overloading when file is too big
 	public static final long DEFAULT_TASK_JOB_LOG_FILE_MAXSIZE = 50000000;
+	
+	// Default - Job script, log read mode: load, stream, map, tail
+	public static final String DEFAULT_TASK_JOB_LOG_FILE_MODE = "load";
+
+	// Default - Job search, max number of chunks of a log searched in parallel
+	public static final int DEFAULT_TASK_JOB_SEARCH_PARALLELISM = 1;
 
 	// Default - Job Log BetaSystems, base URI trust (ignore certificate)
 	public static final String DEFAULT_TASK_JOB_LOG_BETASYSTEMS_BASE_URI_TRUST = "N";
 	
+	// Default - BetaSystems max number of concurrent calls, from every task of the node
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_MAX_CONCURRENCY = 8;
+	
+	// Default - BetaSystems max number of steps of a job fetched together
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_STEP_PARALLELISM = 4;
+	
+	// Default - BetaSystems max number of threads fetching steps, for every job
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_STEP_THREADS = 16;
+	
+	// Default - BetaSystems max number of job URIs and job step lists kept in memory, 0 no cache
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_CACHE_SIZE = 1000;
+	
+	// Default - BetaSystems time to live in seconds of the cached job URIs and job step lists
+	public static final long DEFAULT_TASK_JOB_LOG_BETASYSTEMS_CACHE_TTL = 600;
+	
+	// Default - BetaSystems max seconds waiting for the fetch of the same job by another task
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_FETCH_WAIT_TIMEOUT = 300;
+	
+	// Default - BetaSystems log read mode: load, stream
+	public static final String DEFAULT_TASK_JOB_LOG_BETASYSTEMS_MODE = "load";
+	
+	// Default - BetaSystems connection timeout in seconds of the pooled connections
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_POOL_CONNECT_TIMEOUT = 30;
+	
+	// Default - BetaSystems max seconds waiting for the response of a call, 0 no limit
+	public static final int DEFAULT_TASK_JOB_LOG_BETASYSTEMS_POOL_REQUEST_TIMEOUT = 300;
+	
+	// Default - BetaSystems search every step as soon as its log is fetched
+	public static final String DEFAULT_TASK_JOB_LOG_BETASYSTEMS_PIPELINE = "Y";
+	
+	// Default - BetaSystems directory of the spooled step logs
+	public static final String DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_DIR = System.getProperty("java.io.tmpdir") + "/evo-betasystems-spool";
+	
+	// Default - BetaSystems max size in MB of the spooled step logs, 0 no spool
+	public static final long DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_SIZE = 512;
+	
+	// Default - BetaSystems time to live in seconds of the spooled step logs, 0 no expiry
+	public static final long DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_TTL = 3600;
+	
 	// Default - BetaSystems fetch log with single call
 	public static final String DEFAULT_TASK_JOB_LOG_BETASYSTEMS_GLOBAL_FETCH = "task.job.log.betasystems.globalFetch";
 	
@@ -50,6 +95,12 @@ public class JobAttributes {
 	// Properties -  Job script, log max size (bytes): used to prevent overloading when file is too big
 	public static final String PROP_TASK_JOB_LOG_FILE_MAXSIZE = "task.job.log.file.maxSize";
 	
+	// Properties -  Job script, log read mode: load the whole log in memory, stream it line by line map it in memory during the search, or search only the lines appended since the last task
+	public static final String PROP_TASK_JOB_LOG_FILE_MODE = "task.job.log.file.mode";
+	
+	// Properties - Job search, max number of chunks of a log searched in parallel
+	public static final String PROP_TASK_JOB_SEARCH_PARALLELISM = "task.job.search.parallelism";
+	
 	
 
 	// Properties - Base URI service
@@ -67,6 +118,45 @@ public class JobAttributes {
 	// Properties - BetaSystems password
 	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_PASSWORD = "task.job.log.betasystems.password";
 	
+	// Properties - BetaSystems max number of concurrent calls, from every task of the node
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_MAX_CONCURRENCY = "task.job.log.betasystems.maxConcurrency";
+	
+	// Properties - BetaSystems max number of steps of a job fetched together
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_STEP_PARALLELISM = "task.job.log.betasystems.step.parallelism";
+	
+	// Properties - BetaSystems max number of threads fetching steps, for every job
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_STEP_THREADS = "task.job.log.betasystems.step.threads";
+	
+	// Properties - BetaSystems max number of job URIs and job step lists kept in memory, 0 no cache
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_CACHE_SIZE = "task.job.log.betasystems.cache.size";
+	
+	// Properties - BetaSystems time to live in seconds of the cached job URIs and job step lists
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_CACHE_TTL = "task.job.log.betasystems.cache.ttl";
+	
+	// Properties - BetaSystems max seconds waiting for the fetch of the same job by another task
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_FETCH_WAIT_TIMEOUT = "task.job.log.betasystems.fetch.waitTimeout";
+	
+	// Properties - BetaSystems log read mode: load the step logs in memory, or search them while they are received
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_MODE = "task.job.log.betasystems.mode";
+	
+	// Properties - BetaSystems connection timeout in seconds of the pooled connections
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_POOL_CONNECT_TIMEOUT = "task.job.log.betasystems.pool.connectTimeout";
+	
+	// Properties - BetaSystems max seconds waiting for the response of a call, 0 no limit
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_POOL_REQUEST_TIMEOUT = "task.job.log.betasystems.pool.requestTimeout";
+	
+	// Properties - BetaSystems search every step as soon as its log is fetched
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_PIPELINE = "task.job.log.betasystems.pipeline";
+	
+	// Properties - BetaSystems directory of the spooled step logs
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_DIR = "task.job.log.betasystems.spool.dir";
+	
+	// Properties - BetaSystems max size in MB of the spooled step logs, 0 no spool
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_SIZE = "task.job.log.betasystems.spool.size";
+	
+	// Properties - BetaSystems time to live in seconds of the spooled step logs, 0 no expiry
+	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_TTL = "task.job.log.betasystems.spool.ttl";
+	
 	// Properties - BetaSystems fetch log with single call
 	public static final String PROP_TASK_JOB_LOG_BETASYSTEMS_GLOBAL_FETCH = "task.job.log.betasystems.globalFetch";
 }
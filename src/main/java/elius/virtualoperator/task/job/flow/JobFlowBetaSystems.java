@@ -22,26 +22,24 @@ package elius.virtualoperator.task.job.flow;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import elius.virtualoperator.task.job.Job;
-import elius.virtualoperator.task.job.JobStep;
 import elius.virtualoperator.task.job.JobType;
 import elius.virtualoperator.task.job.log.JobLogBetaSystems;
 import elius.virtualoperator.task.job.search.JobSearch;
 import elius.virtualoperator.task.job.search.JobSearchRepository;
 import elius.virtualoperator.task.job.search.JobSearchRepositoryAttributes;
+import elius.virtualoperator.task.job.search.JobSearchRepositoryCache;
 
 public class JobFlowBetaSystems extends JobFlow {
 	
 	// Get logger
 	private static Logger logger = LogManager.getLogger(JobFlowBetaSystems.class);
 	
-	// Job Steps
-	private List<JobStep> jobSteps;
+	// Job log
+	private JobLogBetaSystems jobLog;
 	
 	// Job Search match list
 	private JobSearch jobSearch;
@@ -49,6 +47,9 @@ public class JobFlowBetaSystems extends JobFlow {
 	// Job Type
 	private JobType jobType;
 	
+	// Search entries repository of the job type
+	private JobSearchRepository jsRepo;
+	
 
 	/**
 	 * Constructor
@@ -61,8 +62,8 @@ public class JobFlowBetaSystems extends JobFlow {
 		// Set job type
 		this.jobType = jobType;
 		
-		// Initialize job steps
-		jobSteps = null;
+		// Initialize job log
+		jobLog = null;
 		
 		// Initialize job search
 		jobSearch = new JobSearch();
@@ -82,16 +83,16 @@ public class JobFlowBetaSystems extends JobFlow {
 		logger.trace("Fetch Log");
 		
 		// Set job
-		JobLogBetaSystems jlbs = new JobLogBetaSystems(job);
+		jobLog = new JobLogBetaSystems(job);
 		
 		// Initialize
-		jlbs.initialize();
+		jobLog.initialize();
 		
-		// Fetch log
-		if(0 == jlbs.fetch()) {
-			
-			// Get parsed log
-			jobSteps = jlbs.getJobSteps();
+		// Search entries, every step is searched as soon as its log is received
+		jsRepo = getRepository();
+		
+		// Fetch log: in stream mode the step logs are read during the search
+		if(0 == jobLog.fetch(jobSearch, jsRepo)) {
 			
 			// Log
 			logger.debug("Log fetched");
@@ -121,8 +122,43 @@ public class JobFlowBetaSystems extends JobFlow {
 		// Log
 		logger.trace("Search messages");
 		
-		// Create repository
-		JobSearchRepository jsRepo = new JobSearchRepository();
+		// Repository loaded
+		if(null != jsRepo) {
+			
+			// Search in every job step not searched yet
+			if(0 != jobLog.search(jobSearch, jsRepo)) {
+				
+				// Set flow code
+				flowResultCode = JobFlowResult.ERROR;
+				
+				// Set flow message
+				flowResultMessage = "Unable to read log";
+				
+				// Stop the flow
+				goNextStep = false;
+			}
+			
+		} else {
+			
+			// Set flow code
+			flowResultCode = JobFlowResult.ERROR;
+			
+			// Set flow message
+			flowResultMessage = "Unable to load search entries from repository";
+			
+			// Stop the flow
+			goNextStep = false;
+			
+		}
+
+	}
+	
+	
+	/**
+	 * Get the search entries repository of the job type
+	 * @return Repository or null if not loaded
+	 */
+	private JobSearchRepository getRepository() {
 		
 		String repo = "";
 		
@@ -143,30 +179,8 @@ public class JobFlowBetaSystems extends JobFlow {
 		}
 		
 		
-		// Load from repository the search entries
-		if(0 == jsRepo.load(repo)) {
-			
-			// Search in every job step
-			for (JobStep jobStep : jobSteps) {
-				
-				// Search for a match
-				jobSearch.search(jobStep, jsRepo);
-				
-			}
-			
-		} else {
-			
-			// Set flow code
-			flowResultCode = JobFlowResult.ERROR;
-			
-			// Set flow message
-			flowResultMessage = "Unable to load search entries from repository";
-			
-			// Stop the flow
-			goNextStep = false;
-			
-		}
-
+		// Get from cache the search entries
+		return JobSearchRepositoryCache.get(repo);
 	}
 
 	
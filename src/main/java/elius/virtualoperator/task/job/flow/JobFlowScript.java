@@ -26,19 +26,19 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import elius.virtualoperator.task.job.Job;
-import elius.virtualoperator.task.job.JobStep;
 import elius.virtualoperator.task.job.log.JobLogFile;
 import elius.virtualoperator.task.job.search.JobSearch;
 import elius.virtualoperator.task.job.search.JobSearchRepository;
 import elius.virtualoperator.task.job.search.JobSearchRepositoryAttributes;
+import elius.virtualoperator.task.job.search.JobSearchRepositoryCache;
 
 public class JobFlowScript extends JobFlow {
 	
 	// Get logger
 	private static Logger logger = LogManager.getLogger(JobFlowScript.class);
 	
-	// Job Step
-	private JobStep jobStep;
+	// Job log file
+	private JobLogFile jobLogFile;
 	
 	// Job Search match list
 	private JobSearch jobSearch;
@@ -52,8 +52,8 @@ public class JobFlowScript extends JobFlow {
 		
 		super(job);	
 		
-		// Initialize job step
-		jobStep = null;
+		// Initialize job log file
+		jobLogFile = null;
 		
 		// Initialize job search
 		jobSearch = new JobSearch();
@@ -73,24 +73,22 @@ public class JobFlowScript extends JobFlow {
 		logger.trace("Fetch Log");
 		
 		// Set job
-		JobLogFile jls = new JobLogFile(job);
+		jobLogFile = new JobLogFile(job);
 		
 		// Initialize
-		jls.initialize();
+		jobLogFile.initialize();
 		
-		// Fetch log
-		if(0 == jls.fetch()) {
-			
-			// Get parsed log
-			jobStep = jls.getJobStep();
-			
-		} else {
+		// Fetch log: in stream mode the log is read during the search
+		if(0 != jobLogFile.fetch()) {
 			
 			// Set Flow Error
 			flowResultCode = JobFlowResult.ERROR;
 			
 			// Set Flow Error
 			flowResultMessage = "Unable to fetch log";
+			
+			// Stop the flow
+			goNextStep = false;
 		}
 		
 		// Log
@@ -108,14 +106,24 @@ public class JobFlowScript extends JobFlow {
 		// Log
 		logger.trace("Search messages");
 		
-		// Create repository
-		JobSearchRepository jsRepo = new JobSearchRepository();
+		// Get from cache the search entries for scripts
+		JobSearchRepository jsRepo = JobSearchRepositoryCache.get(JobSearchRepositoryAttributes.SEARCH_ENTRIES_JOB_SCRIPT);
 		
-		// Load from repository the search entries for scripts
-		if(0 == jsRepo.load(JobSearchRepositoryAttributes.SEARCH_ENTRIES_JOB_SCRIPT)) {
+		// Repository loaded
+		if(null != jsRepo) {
 			
 			// Search for a match
-			jobSearch.search(jobStep, jsRepo);
+			if(0 != jobLogFile.search(jobSearch, jsRepo)) {
+				
+				// Set flow code
+				flowResultCode = JobFlowResult.ERROR;
+				
+				// Set flow message
+				flowResultMessage = "Unable to read log";
+				
+				// Stop the flow
+				goNextStep = false;
+			}
 
 			
 		} else {
@@ -21,11 +21,28 @@
 package elius.virtualoperator.task.job.log;
 
 import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.http.HttpResponse;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,13 +50,21 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import elius.virtualoperator.task.TaskTargetLimiter;
 import elius.virtualoperator.task.job.Job;
 import elius.virtualoperator.task.job.JobAttributes;
 import elius.virtualoperator.task.job.JobStep;
+import elius.virtualoperator.task.job.search.JobSearch;
+import elius.virtualoperator.task.job.search.JobSearchRepository;
+import elius.virtualoperator.task.job.search.JobSearchScan;
 import elius.webapp.framework.properties.PropertiesManager;
 import elius.webapp.framework.properties.PropertiesManagerFactory;
 import elius.webapp.framework.security.secret.SecretCredentials;
-import elius.webapp.framework.http.HttpConnection;
 
 
 public class JobLogBetaSystems extends JobLog {
@@ -62,8 +87,8 @@ public class JobLogBetaSystems extends JobLog {
 	// Select Path
 	private String selectPath;
 	
-	// HTTP Connection 
-	private HttpConnection httpConnection;
+	// HTTP session shared by the tasks calling the base URI
+	private JobLogBetaSystemsSession session;
 	
 	// HTTP Credentials
 	private SecretCredentials httpCredentials;
@@ -71,8 +96,47 @@ public class JobLogBetaSystems extends JobLog {
 	// Fetch all
 	private String fetchAll;
 	
-	// Step lines
-	List<String> jobLogList;
+	// Target system, host and port of the base URI
+	private String target;
+	
+	// Limiter of the concurrent calls to the target system
+	private TaskTargetLimiter limiter;
+	
+	// Max number of steps of the job fetched together
+	private int stepParallelism;
+	
+	// Max number of threads fetching steps for every job
+	private int stepThreads;
+	
+	// Pool fetching the steps of every job
+	private static ExecutorService stepPool;
+	
+	// Fetches in progress by job key, the tasks fetching the same job together share the steps
+	private static final ConcurrentHashMap<String, CompletableFuture<List<JobStep>>> fetches = new ConcurrentHashMap<String, CompletableFuture<List<JobStep>>>();
+	
+	// Log read mode: load or stream
+	private JobLogFileMode mode;
+	
+	// Spool of the step logs, null if disabled
+	private JobLogBetaSystemsSpool spool;
+	
+	// Search every step as soon as its log is fetched
+	private boolean pipeline;
+	
+	// Max seconds waiting for the fetch of the same job by another task
+	private int waitTimeout;
+	
+	// Search fed while fetching, null if not pipelined
+	private JobSearch pipeSearch;
+	
+	// Repository of the search fed while fetching
+	private JobSearchRepository pipeRepo;
+	
+	// Job already searched while fetched
+	private boolean searched;
+	
+	// Factory of the streaming JSON parsers
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 	
 	
 	/**
@@ -88,9 +152,6 @@ public class JobLogBetaSystems extends JobLog {
 		// Job step
 		jobSteps = new ArrayList<JobStep>();
 		
-		// HTTP Connection 
-		httpConnection = new HttpConnection();
-		
 		// HTTP Credentials
 		httpCredentials = new SecretCredentials();
 	}
@@ -128,7 +189,56 @@ public class JobLogBetaSystems extends JobLog {
 		// Global Fetch
 		fetchAll = appProperties.get(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_GLOBAL_FETCH, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_GLOBAL_FETCH);
 		
+		// Max number of steps of the job fetched together
+		stepParallelism = Math.max(1, appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_STEP_PARALLELISM, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_STEP_PARALLELISM));
 		
+		// Max number of threads fetching steps for every job
+		stepThreads = Math.max(1, appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_STEP_THREADS, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_STEP_THREADS));
+		
+		// Log read mode
+		mode = JobLogFileMode.getByName(appProperties.get(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_MODE, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_MODE));
+		if((JobLogFileMode.LOAD != mode) && (JobLogFileMode.STREAM != mode)) {
+			logger.warn("Job log BetaSystems mode(" + mode.getName() + ") not supported, load used");
+			mode = JobLogFileMode.LOAD;
+		}
+		
+		// Search while fetching
+		pipeline = "Y".equalsIgnoreCase(appProperties.get(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_PIPELINE, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_PIPELINE));
+		
+		// Max wait for the fetch of another task
+		waitTimeout = Math.max(1, appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_FETCH_WAIT_TIMEOUT, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_FETCH_WAIT_TIMEOUT));
+		
+		// Cache of job URIs and steps
+		int cacheSize = appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_CACHE_SIZE, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_CACHE_SIZE);
+		long cacheTtl = appProperties.getLong(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_CACHE_TTL, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_CACHE_TTL);
+		JobLogBetaSystemsCache.JOB_URIS.configure(cacheSize, cacheTtl);
+		JobLogBetaSystemsCache.JOB_STEPS.configure(cacheSize, cacheTtl);
+		
+		// Spool of the step logs, the logs are in memory only in load mode
+		if(JobLogFileMode.LOAD == mode)
+			spool = JobLogBetaSystemsSpool.get(appProperties.get(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_DIR, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_DIR),
+					appProperties.getLong(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_SIZE, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_SIZE) * 1024 * 1024,
+					appProperties.getLong(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_SPOOL_TTL, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_SPOOL_TTL) * 1000);
+		
+		// Target system
+		try {
+			target = URI.create(baseUri).getAuthority();
+		} catch (IllegalArgumentException | NullPointerException e) {
+			target = null;
+		}
+		if (null == target)
+			target = String.valueOf(baseUri);
+		
+		// Max number of concurrent calls to the target system
+		limiter = TaskTargetLimiter.define(target, appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_MAX_CONCURRENCY, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_MAX_CONCURRENCY));
+		
+		// HTTP session of the base URI
+		session = JobLogBetaSystemsSession.get(baseUri, trustAll, httpCredentials.getUserId(), httpCredentials.getPassword(),
+					appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_POOL_CONNECT_TIMEOUT, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_POOL_CONNECT_TIMEOUT),
+					appProperties.getInt(JobAttributes.PROP_TASK_JOB_LOG_BETASYSTEMS_POOL_REQUEST_TIMEOUT, JobAttributes.DEFAULT_TASK_JOB_LOG_BETASYSTEMS_POOL_REQUEST_TIMEOUT));
+		
+		// Log session metrics
+		logger.debug(session.toString());
 		
 		// Log
 		logger.debug("Job log file initialized");
@@ -140,6 +250,7 @@ public class JobLogBetaSystems extends JobLog {
 	
 	/**
 	 * Fetch log from BetaSystems Control
+	 * When another task is fetching the same job, its steps are shared instead of fetched again
 	 * @return 0 OK, otherwise error
 	 */
 	@Override
@@ -150,10 +261,155 @@ public class JobLogBetaSystems extends JobLog {
 		
 		// Clear previous data
 		jobSteps.clear();
+		searched = false;
+		
+		// Cache key of the job
+		String key = cacheKey();
+		
+		// Join the fetch in progress of the same job
+		CompletableFuture<List<JobStep>> flight = new CompletableFuture<List<JobStep>>();
+		CompletableFuture<List<JobStep>> inProgress = fetches.putIfAbsent(key, flight);
+		if(null != inProgress)
+			return join(key, inProgress);
+		
+		// Fetch, error if interrupted by an unexpected exception
+		int rc = -1;
+		try {
+			rc = fetch(key);
+			
+		} finally {
+			// Share the steps, read only, with the tasks waiting: null in case of errors
+			flight.complete((0 == rc) ? Collections.unmodifiableList(new ArrayList<JobStep>(jobSteps)) : null);
+			
+			// Fetch ended
+			fetches.remove(key, flight);
+		}
+		
+		return rc;
+	}
+	
+	
+	/**
+	 * Fetch log from BetaSystems Control and search every step as soon as its log is received,
+	 * while the next steps are still downloading. Matches are added in the step order.
+	 * Logs taken from the spool or from another task are searched by search(), like in stream mode
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, otherwise error
+	 */
+	public int fetch(JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Search while fetching
+		if(pipeline && (null != jsRepo)) {
+			pipeSearch = jobSearch;
+			pipeRepo = jsRepo;
+		}
+		
+		try {
+			// Fetch
+			return fetch();
+			
+		} finally {
+			// Stop feeding the search
+			pipeSearch = null;
+			pipeRepo = null;
+		}
+	}
+	
+	
+	/**
+	 * Wait for the fetch of the same job by another task and take its steps
+	 * Past the wait timeout the job is fetched without the other task
+	 * @param key Job key
+	 * @param inProgress Fetch in progress
+	 * @return 0 OK, otherwise error
+	 */
+	private int join(String key, CompletableFuture<List<JobStep>> inProgress) {
+		
+		// Log
+		logger.debug("Job log fetch in progress, waiting(" + key + ")");
+		
+		try {
+			// Steps of the other task
+			List<JobStep> steps = inProgress.get(waitTimeout, TimeUnit.SECONDS);
+			
+			// Fetch in error
+			if(null == steps) {
+				logger.error("Error fetching job log in another task for " + key);
+				return 1;
+			}
+			
+			// Take the steps
+			jobSteps.addAll(steps);
+			return 0;
+			
+		} catch (TimeoutException e) {
+			// Log
+			logger.warn("Job log fetch in progress too long, fetching(" + key + ")");
+			
+			// Fetch without waiting any more
+			return fetch(key);
+			
+		} catch (InterruptedException | ExecutionException e) {
+			// Log error
+			logger.error("Error waiting job log fetch for " + key + ": " + e.getMessage());
+			
+			// Keep interrupted status
+			if (e instanceof InterruptedException)
+				Thread.currentThread().interrupt();
+			
+			return 1;
+		}
+	}
+	
+	
+	/**
+	 * Fetch log from BetaSystems Control, from the spool or the cache when available
+	 * @param key Job key
+	 * @return 0 OK, otherwise error
+	 */
+	private int fetch(String key) {
 		
+		// Step logs already spooled and not expired
+		if(null != spool) {
+			List<JobStep> spooledSteps = spool.read(key);
+			if(null != spooledSteps) {
+				
+				// Log
+				logger.debug("Job log found in spool(" + key + ")");
+				
+				jobSteps.addAll(spooledSteps);
+				return 0;
+			}
+		}
 		
-		// Get job URI
-		String jobUri = getJobUri();
+		// Steps already known: only the step logs are fetched
+		List<JobStep> cachedSteps = JobLogBetaSystemsCache.JOB_STEPS.get(key);
+		if(null != cachedSteps) {
+			
+			// Log
+			logger.debug("Job steps found in cache(" + key + ")");
+			
+			// Fetch step logs
+			if(0 != fetchSteps(copySteps(cachedSteps))) {
+				logger.error("Error getting step info for " + key);
+				
+				// Return error
+				return 2;
+			}
+			
+			return 0;
+		}
+		
+		// Get job URI, from the cache or from BetaSystems Control
+		String jobUri = JobLogBetaSystemsCache.JOB_URIS.get(key);
+		if(null == jobUri) {
+			jobUri = getJobUri();
+			
+			// Save resolved URI
+			if(!"".equals(jobUri))
+				JobLogBetaSystemsCache.JOB_URIS.put(key, jobUri);
+		}
 		
 		// Check for errors
 		if("".equals(jobUri)) {
@@ -168,7 +424,7 @@ public class JobLogBetaSystems extends JobLog {
 		}
 		
 		// Get Steps
-		if(0 != getJobStepsInfo(jobUri)) {
+		if(0 != getJobStepsInfo(jobUri, key)) {
 			logger.error("Error getting step info for " + 
 					job.getName() + "." + 
 					job.getId() + "." +
@@ -200,6 +456,36 @@ public class JobLogBetaSystems extends JobLog {
 	}
 	
 	
+	/**
+	 * Get the cache key of the job: the same job of the same BetaSystems Control, fetched the same way
+	 * @return Key
+	 */
+	private String cacheKey() {
+		return baseUri + "|" + fetchAll + "|" + 
+				job.getName() + "|" + 
+				job.getId() + "|" + 
+				((null != job.getStarted()) ? job.getStarted().getTime() : "") + "|" + 
+				((null != job.getEnded()) ? job.getEnded().getTime() : "");
+	}
+	
+	
+	/**
+	 * Copy steps name and URI, without the log
+	 * @param steps Steps
+	 * @return Copy of the steps
+	 */
+	private static List<JobStep> copySteps(List<JobStep> steps) {
+		List<JobStep> copy = new ArrayList<JobStep>(steps.size());
+		for(JobStep s : steps) {
+			JobStep js = new JobStep();
+			js.setName(s.getName());
+			js.setUrl(s.getUrl());
+			copy.add(js);
+		}
+		return copy;
+	}
+	
+	
 	/**
 	 * Get the job URI from BetaSystems Control
 	 * @return The URI of job inside the BetaSystems Control
@@ -242,11 +528,12 @@ public class JobLogBetaSystems extends JobLog {
 
 		
 		// Get job info
-		if(0 != httpConnection.get(uri, httpCredentials, trustAll))
+		String content = get(uri);
+		if(null == content)
 			return jobUri;
 		
 		// Parse JSON from text to object
-		JSONObject jo = new JSONObject(httpConnection.getResponseContent());
+		JSONObject jo = new JSONObject(content);
 		
 		
 		try {
@@ -282,18 +569,23 @@ public class JobLogBetaSystems extends JobLog {
 	/**
 	 * Return the job steps list information
 	 * @param jobUri The job URI
+	 * @param key Cache key of the job
 	 * @return 0 OK, otherwise the error code
 	 */
-	private int getJobStepsInfo(String jobUri) {
+	private int getJobStepsInfo(String jobUri, String key) {
 	
+		// Steps to fetch
+		List<JobStep> stepsToFetch = new ArrayList<JobStep>();
+		
 		
 		// Get job info
-		if(0 != httpConnection.get(jobUri, httpCredentials, trustAll))
+		String content = get(jobUri);
+		if(null == content)
 			return 1;
 		
 		try {
 			// Parse JSON from text to object
-			JSONObject jo = new JSONObject(httpConnection.getResponseContent());
+			JSONObject jo = new JSONObject(content);
 			// Get the item with the steps info
 			JSONObject a4dp = jo.getJSONObject("a4dp:return").getJSONObject("JOB_LOGTYPES");
 			// Get steps
@@ -339,46 +631,23 @@ public class JobLogBetaSystems extends JobLog {
 					// Set step URI
 					js.setUrl(baseUri + uri + "&format=json");
 					
-					// Get step info
-					if(0 == httpConnection.get(js.getUrl(), httpCredentials, trustAll)) {
-						
-						// Output is defined in a single row
-						jobLogList = new ArrayList<String>();
-						
-						// Parse JSON from text to object
-						JSONObject joStep = new JSONObject(httpConnection.getResponseContent());
-						
-						// JSON get pages
-						Object oPages = joStep.getJSONObject("a4dp:return").getJSONObject("RESULT_TABLE").get("a4dp:page");
-						
-						// Parse pages
-						parsePages(oPages);
-						
-						// Set step log
-						js.setLog(jobLogList);	
-						
-						if("Y".equalsIgnoreCase(fetchAll)) {
-							stepName = "ALL";
-						} else {
-							// Set complete step name
-							if(!"".equals(stepName))
-								stepName += ".";
-							stepName += procstep;
-							if(!"".equals(stepName))
-								stepName += ".";
-							stepName += ddname;
-						}
-						
-						// Set complete step-name
-						js.setName(stepName);
-						
-						// Add step info to list
-						jobSteps.add(js);						
-						
+					if("Y".equalsIgnoreCase(fetchAll)) {
+						stepName = "ALL";
 					} else {
-						// Warning
-						logger.warn("Unable to get step info from URI (" + js.getUrl() + ")");
+						// Set complete step name
+						if(!"".equals(stepName))
+							stepName += ".";
+						stepName += procstep;
+						if(!"".equals(stepName))
+							stepName += ".";
+						stepName += ddname;
 					}
+					
+					// Set complete step-name
+					js.setName(stepName);
+					
+					// Add step to fetch
+					stepsToFetch.add(js);
 				}
 					
 			}
@@ -388,17 +657,420 @@ public class JobLogBetaSystems extends JobLog {
 			return 1;
 		}
 
-		// Return step list
+		// Save the steps
+		JobLogBetaSystemsCache.JOB_STEPS.put(key, copySteps(stepsToFetch));
+		
+		// Fetch step logs
+		return fetchSteps(stepsToFetch);
+	}
+	
+	
+	/**
+	 * Fetch the logs of the steps, more steps of the job at a time
+	 * In stream mode only the steps are listed, the logs are read during the search.
+	 * Steps are added to the job steps in the original order, the ones not fetched are skipped
+	 * @param steps Steps to fetch
+	 * @return 0 OK, otherwise the error code
+	 */
+	private int fetchSteps(List<JobStep> steps) {
+		
+		// Logs read during the search
+		if(JobLogFileMode.STREAM == mode) {
+			jobSteps.addAll(steps);
+			return 0;
+		}
+		
+		// Search fed while fetching
+		final JobSearch search = pipeSearch;
+		final JobSearchRepository repo = pipeRepo;
+		
+		// Scan of every step searched as soon as fetched
+		final Map<JobStep, JobSearchScan> scans = new ConcurrentHashMap<JobStep, JobSearchScan>();
+		
+		// Log of every step, null if not fetched
+		List<List<String>> logs = forEachStep(steps, js -> {
+			
+			// Fetch step
+			List<String> log = fetchStep(js);
+			
+			// Search step, while the other steps are fetched
+			if((null != log) && (null != search)) {
+				js.setLog(log);
+				scans.put(js, search.scan(js, repo));
+			}
+			
+			return log;
+		});
+		
+		// Invalid step content or interrupted
+		if(null == logs)
+			return 1;
+		
+		// Every step fetched
+		boolean complete = true;
+		
+		// Add steps in the original order
+		for (int i = 0; i < steps.size(); i++) {
+			
+			// Step
+			JobStep js = steps.get(i);
+			
+			if(null != logs.get(i)) {
+				// Set step log
+				js.setLog(logs.get(i));
+				
+				// Add step info to list
+				jobSteps.add(js);
+				
+			} else {
+				// Warning
+				logger.warn("Unable to get step info from URI (" + js.getUrl() + ")");
+				complete = false;
+			}
+		}
+		
+		// Add matches in the step order, the job is searched
+		if(null != search) {
+			for (JobStep js : jobSteps)
+				search.add(scans.get(js));
+			searched = true;
+			
+			// Log
+			logger.debug("Job log searched while fetched");
+		}
+		
+		// Spool the complete logs for the next checks, until they expire
+		if(complete && (null != spool))
+			spool.write(cacheKey(), jobSteps);
+		
 		return 0;
 	}
-
+	
+	
+	/**
+	 * Search messages in the job steps
+	 * In stream mode every step log is parsed while it is received and its lines are searched
+	 * as they arrive, more steps of the job at a time: the log is never kept in memory.
+	 * Nothing is done if the job was already searched while fetched
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, otherwise error
+	 */
+	public int search(JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Already searched while fetched
+		if(searched)
+			return 0;
+		
+		// Logs already in memory
+		if(JobLogFileMode.STREAM != mode) {
+			for (JobStep jobStep : jobSteps)
+				jobSearch.search(jobStep, jsRepo);
+			return 0;
+		}
+		
+		// Log
+		logger.trace("Stream job log from BetaSystems Control");
+		
+		// Scan of every step, null if not fetched
+		List<JobSearchScan> scans = forEachStep(jobSteps, js -> streamStep(js, jobSearch, jsRepo));
+		
+		// Invalid step content or interrupted
+		if(null == scans)
+			return 1;
+		
+		// Add matches in the original step order
+		for (int i = 0; i < jobSteps.size(); i++) {
+			if(null != scans.get(i))
+				jobSearch.add(scans.get(i));
+			else
+				logger.warn("Unable to get step info from URI (" + jobSteps.get(i).getUrl() + ")");
+		}
+		
+		return 0;
+	}
+	
+	
+	/**
+	 * Run a work on every step, more steps of the job at a time
+	 * @param steps Steps
+	 * @param work Work on a step
+	 * @return Result of every step in the original order, null for the steps not fetched, or null in case of invalid content
+	 */
+	private <T> List<T> forEachStep(List<JobStep> steps, StepWork<T> work) {
+		
+		// Result of every step, null if not fetched
+		final List<T> results = new ArrayList<T>(Collections.<T>nCopies(steps.size(), null));
+		
+		// Next step
+		final AtomicInteger next = new AtomicInteger();
+		
+		// Invalid step content
+		final AtomicBoolean invalid = new AtomicBoolean();
+		
+		// Work on steps until none is left
+		Runnable worker = () -> {
+			for (int i = next.getAndIncrement(); i < steps.size(); i = next.getAndIncrement()) {
+				try {
+					results.set(i, work.run(steps.get(i)));
+				} catch (JSONException | IOException e) {
+					logger.error("Invalid step content(" + steps.get(i).getUrl() + "): " + e.getMessage());
+					invalid.set(true);
+				}
+			}
+		};
+		
+		// Workers of the job, one runs on this thread
+		int nWorkers = Math.min(stepParallelism, steps.size());
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int n = 1; n < nWorkers; n++)
+			futures.add(stepPool(stepThreads).submit(worker));
+		worker.run();
+		
+		// Wait for the other workers
+		try {
+			for (Future<?> f : futures)
+				f.get();
+			
+		} catch (InterruptedException | ExecutionException e) {
+			// Stop working
+			next.set(steps.size());
+			for (Future<?> f : futures)
+				f.cancel(true);
+			
+			// Log error
+			logger.error("Error fetching steps: " + e.getMessage());
+			
+			// Keep interrupted status
+			if (e instanceof InterruptedException)
+				Thread.currentThread().interrupt();
+			
+			// Return error
+			return null;
+		}
+		
+		// Invalid step content
+		return invalid.get() ? null : results;
+	}
+	
+	
+	/**
+	 * Fetch the log of a step
+	 * @param js Step
+	 * @return Step lines or null if the step can't be fetched
+	 * @throws JSONException Invalid step content
+	 */
+	private List<String> fetchStep(JobStep js) throws JSONException {
+		
+		// Get step info
+		String content = get(js.getUrl());
+		if(null == content)
+			return null;
+		
+		// Output is defined in a single row
+		List<String> jobLogList = new ArrayList<String>();
+		
+		// Parse JSON from text to object
+		JSONObject joStep = new JSONObject(content);
+		
+		// JSON get pages
+		Object oPages = joStep.getJSONObject("a4dp:return").getJSONObject("RESULT_TABLE").get("a4dp:page");
+		
+		// Parse pages
+		parsePages(oPages, jobLogList);
+		
+		// Return step lines
+		return jobLogList;
+	}
+	
+	
+	/**
+	 * Stream the log of a step into a new scan, one line at a time
+	 * @param js Step
+	 * @param jobSearch Job search
+	 * @param jsRepo Job search repository
+	 * @return Scan of the step or null if the step can't be fetched
+	 * @throws IOException Invalid step content
+	 */
+	private JobSearchScan streamStep(JobStep js, JobSearch jobSearch, JobSearchRepository jsRepo) throws IOException {
+		
+		// Wait for a permit, kept while the log is received
+		if(0 != limiter.acquire())
+			return null;
+		
+		try {
+			// Call
+			HttpResponse<InputStream> response = session.getStream(js.getUrl());
+			if(null == response)
+				return null;
+			
+			// Read the body as it is received
+			try (InputStream body = response.body()) {
+				
+				// Call error
+				if(JobLogBetaSystemsSession.HTTP_OK != response.statusCode()) {
+					logger.error("Call error(" + response.statusCode() + ") URI(" + js.getUrl() + ")");
+					return null;
+				}
+				
+				// Search lines
+				JobSearchScan scan = jobSearch.open(js.getName(), jsRepo);
+				streamLines(body, scan);
+				
+				// Log
+				logger.debug("Step(" + js.getName() + ") streamed, lines(" + scan.getLines() + ")");
+				
+				return scan;
+			}
+			
+		} finally {
+			// Release permit
+			limiter.release();
+		}
+	}
+	
+	
+	/**
+	 * Search the lines of a step while the JSON is parsed
+	 * Same path as the load mode: a4dp:return, RESULT_TABLE, a4dp:page, a4dp:line and its content.
+	 * Pages and lines can be single or in an array
+	 * @param in Step JSON
+	 * @param scan Scan fed with the lines
+	 * @throws IOException Invalid JSON or path not found
+	 */
+	static void streamLines(InputStream in, JobSearchScan scan) throws IOException {
+		
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			
+			// Step object
+			parser.nextToken();
+			
+			// Pages of the result table
+			streamField(parser, "a4dp:return", true, r -> 
+				streamField(r, "RESULT_TABLE", true, t -> 
+					streamField(t, "a4dp:page", true, pages -> 
+						streamEach(pages, page -> 
+							// Lines of the page, blank pages have none
+							streamField(page, "a4dp:line", false, lines -> 
+								streamEach(lines, line -> 
+									// Content of the line, blank lines have none
+									streamField(line, "content", false, content -> {
+										if(content.currentToken().isScalarValue())
+											scan.line(content.getText());
+										else
+											content.skipChildren();
+									})))))));
+		}
+	}
+	
+	
+	/**
+	 * Work on the value of a field of a JSON object, the object is read to its end
+	 * @param parser Parser on the start of the object
+	 * @param name Field name
+	 * @param required True if the field must be found
+	 * @param work Work on the field value, starting on its first token and ending on its last one
+	 * @throws IOException Invalid JSON, not an object or required field not found
+	 */
+	private static void streamField(JsonParser parser, String name, boolean required, JsonWork work) throws IOException {
+		
+		// Object expected
+		if(JsonToken.START_OBJECT != parser.currentToken())
+			throw new JsonParseException(parser, "Object expected for field(" + name + ")");
+		
+		// Scroll fields
+		boolean found = false;
+		while (JsonToken.FIELD_NAME == parser.nextToken()) {
+			
+			// Field value
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			
+			// Work on the value or skip it
+			if(name.equals(field)) {
+				work.run(parser);
+				found = true;
+			} else
+				parser.skipChildren();
+		}
+		
+		// Required field not found
+		if(required && !found)
+			throw new JsonParseException(parser, "Field(" + name + ") not found");
+	}
+	
+	
+	/**
+	 * Work on a JSON value or on every element if it is an array
+	 * @param parser Parser on the first token of the value
+	 * @param work Work on the value or on an element
+	 * @throws IOException Invalid JSON
+	 */
+	private static void streamEach(JsonParser parser, JsonWork work) throws IOException {
+		
+		// Single value
+		if(JsonToken.START_ARRAY != parser.currentToken()) {
+			work.run(parser);
+			return;
+		}
+		
+		// Scroll elements
+		while (JsonToken.END_ARRAY != parser.nextToken())
+			work.run(parser);
+	}
+	
+	
+	/**
+	 * Get the pool fetching the steps of every job
+	 * @param nThreads Max number of threads, set by the first call
+	 * @return Pool
+	 */
+	private static synchronized ExecutorService stepPool(int nThreads) {
+		
+		// Create pool, idle threads end
+		if (null == stepPool) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(nThreads, nThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+				Thread t = new Thread(r, "evo-betasystems-step");
+				t.setDaemon(true);
+				return t;
+			});
+			pool.allowCoreThreadTimeOut(true);
+			stepPool = pool;
+		}
+		
+		return stepPool;
+	}
+	
+	
+	/**
+	 * Call BetaSystems Control, waiting for a permit of the target system
+	 * @param uri URI
+	 * @return Response content or null in case of errors
+	 */
+	private String get(String uri) {
+		
+		// Wait for a permit
+		if(0 != limiter.acquire())
+			return null;
+		
+		try {
+			// Call
+			return session.getString(uri);
+			
+		} finally {
+			// Release permit
+			limiter.release();
+		}
+	}
+	
 	
 	/**
 	 * Parse pages from a4dp JSON Object
 	 * @param oPages Pages object
+	 * @param jobLogList Step lines
 	 * @throws JSONException
 	 */
-	private void parsePages(Object oPages) throws JSONException {
+	private void parsePages(Object oPages, List<String> jobLogList) throws JSONException {
 		
 		// Single page or multiple pages
 		if(oPages instanceof JSONObject) {
@@ -412,7 +1084,7 @@ public class JobLogBetaSystems extends JobLog {
 				Object oLines = page.get("a4dp:line");
 				
 				// Parse lines
-				parseLines(oLines);				
+				parseLines(oLines, jobLogList);				
 			}
 			
 			
@@ -430,7 +1102,7 @@ public class JobLogBetaSystems extends JobLog {
 					Object oLines = pages.getJSONObject(p).get("a4dp:line");
 					
 					// Parse lines
-					parseLines(oLines);
+					parseLines(oLines, jobLogList);
 				}				
 			}
 			
@@ -441,9 +1113,10 @@ public class JobLogBetaSystems extends JobLog {
 	/**
 	 * Parse lines from a4dp JSON object
 	 * @param oLines Lines object
+	 * @param jobLogList Step lines
 	 * @throws JSONException
 	 */
-	private void parseLines(Object oLines)  throws JSONException {
+	private void parseLines(Object oLines, List<String> jobLogList)  throws JSONException {
 		
 		// Single page or multiple lines
 		if(oLines instanceof JSONObject) {
@@ -468,4 +1141,33 @@ public class JobLogBetaSystems extends JobLog {
 		}
 
 	}
+	
+	
+	/**
+	 * Work on a value of a JSON stream
+	 */
+	private interface JsonWork {
+		
+		/**
+		 * Work on the value
+		 * @param parser Parser on the first token of the value, to be left on its last one
+		 * @throws IOException Invalid JSON
+		 */
+		void run(JsonParser parser) throws IOException;
+	}
+	
+	
+	/**
+	 * Work on a single step
+	 */
+	private interface StepWork<T> {
+		
+		/**
+		 * Work on a step
+		 * @param js Step
+		 * @return Result or null if the step can't be fetched
+		 * @throws IOException Invalid step content
+		 */
+		T run(JobStep js) throws IOException;
+	}
 }
@@ -0,0 +1,239 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+package elius.virtualoperator.task.job.log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.task.job.JobStep;
+
+public class JobLogBetaSystemsCache<V> {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobLogBetaSystemsCache.class);
+	
+	// Job URIs resolved by the job selection
+	public static final JobLogBetaSystemsCache<String> JOB_URIS = new JobLogBetaSystemsCache<String>("uris");
+	
+	// Steps of the jobs, name and URI without the log
+	public static final JobLogBetaSystemsCache<List<JobStep>> JOB_STEPS = new JobLogBetaSystemsCache<List<JobStep>>("steps");
+	
+	// Cache name
+	private final String name;
+	
+	// Entries by key, least recently used first
+	private final LinkedHashMap<String, CacheEntry<V>> entries;
+	
+	// Max number of entries
+	private int maxSize;
+	
+	// Time to live of the entries (milliseconds)
+	private long ttl;
+	
+	// Requests served by the cache
+	private long hits;
+	
+	// Requests not served by the cache
+	private long misses;
+	
+	// Entries removed to keep the max size
+	private long evictions;
+	
+	// Entries removed because expired
+	private long expirations;
+	
+	
+	/**
+	 * Constructor
+	 * @param name Cache name
+	 */
+	private JobLogBetaSystemsCache(String name) {
+		this.name = name;
+		this.entries = new LinkedHashMap<String, CacheEntry<V>>(16, 0.75f, true);
+	}
+	
+	
+	/**
+	 * Set size and time to live, applied to the next operations
+	 * @param maxSize Max number of entries, 0 disables the cache
+	 * @param ttl Time to live (seconds)
+	 */
+	public synchronized void configure(int maxSize, long ttl) {
+		this.maxSize = Math.max(0, maxSize);
+		this.ttl = Math.max(0, ttl) * 1000;
+		
+		// Remove the entries over the size
+		evict();
+	}
+	
+	
+	/**
+	 * Get an entry
+	 * @param key Key
+	 * @return Value or null if missing or expired
+	 */
+	public synchronized V get(String key) {
+		
+		// Entry
+		CacheEntry<V> entry = entries.get(key);
+		
+		// Expired
+		if ((null != entry) && (entry.expires <= System.currentTimeMillis())) {
+			entries.remove(key);
+			expirations++;
+			entry = null;
+		}
+		
+		// Missing
+		if (null == entry) {
+			misses++;
+			return null;
+		}
+		
+		hits++;
+		return entry.value;
+	}
+	
+	
+	/**
+	 * Add an entry, the least recently used ones are removed over the max size
+	 * @param key Key
+	 * @param value Value
+	 */
+	public synchronized void put(String key, V value) {
+		
+		// Cache disabled
+		if ((0 == maxSize) || (0 == ttl))
+			return;
+		
+		// Add entry
+		entries.put(key, new CacheEntry<V>(value, System.currentTimeMillis() + ttl));
+		
+		// Remove the entries over the size
+		evict();
+		
+		// Log
+		logger.debug("Cache(" + name + ") size(" + entries.size() + ") hits(" + hits + ") misses(" + misses + ") evictions(" + evictions + ") expirations(" + expirations + ")");
+	}
+	
+	
+	/**
+	 * Remove the least recently used entries over the max size
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, CacheEntry<V>>> it = entries.entrySet().iterator();
+		while ((entries.size() > maxSize) && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions++;
+		}
+	}
+	
+	
+	/**
+	 * Remove all entries
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	
+	/**
+	 * Get the number of entries
+	 * @return Size
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+	
+	
+	/**
+	 * Get the number of requests served by the cache
+	 * @return Hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	
+	/**
+	 * Get the number of requests not served by the cache
+	 * @return Misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	
+	/**
+	 * Get the ratio of requests served by the cache
+	 * @return Hit rate, from 0 to 1
+	 */
+	public synchronized double getHitRate() {
+		return ((hits + misses) > 0) ? ((double) hits / (hits + misses)) : 0;
+	}
+	
+	
+	/**
+	 * Get the number of entries removed to keep the max size
+	 * @return Evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	
+	/**
+	 * Get the number of entries removed because expired
+	 * @return Expirations
+	 */
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+	
+	
+	/**
+	 * Cached value
+	 */
+	private static class CacheEntry<V> {
+		
+		// Value
+		private final V value;
+		
+		// Expiration time (milliseconds)
+		private final long expires;
+		
+		
+		/**
+		 * Constructor
+		 * @param value Value
+		 * @param expires Expiration time (milliseconds)
+		 */
+		CacheEntry(V value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+}
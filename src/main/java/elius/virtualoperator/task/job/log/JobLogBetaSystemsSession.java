@@ -0,0 +1,376 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+package elius.virtualoperator.task.job.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class JobLogBetaSystemsSession {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobLogBetaSystemsSession.class);
+	
+	// HTTP OK
+	public static final int HTTP_OK = 200;
+	
+	// Sessions by base URI, certificate trust and user
+	private static final ConcurrentHashMap<String, JobLogBetaSystemsSession> sessions = new ConcurrentHashMap<String, JobLogBetaSystemsSession>();
+	
+	// Base URI
+	private final String baseUri;
+	
+	// HTTP client, keeps the connections alive and reuses the TLS sessions and the servlet session cookies
+	private final HttpClient client;
+	
+	// Basic authentication header
+	private final String authorization;
+	
+	// Hash of the credentials, a new password replaces the session
+	private final String credentials;
+	
+	// Connection timeout (seconds), a new value replaces the session
+	private final int connectTimeout;
+	
+	// Max time waiting for the response of a call (seconds), a new value replaces the session
+	private final int requestTimeout;
+	
+	// Calls
+	private final AtomicLong requests = new AtomicLong();
+	
+	// Calls in error
+	private final AtomicLong errors = new AtomicLong();
+	
+	// Calls in progress
+	private final AtomicInteger active = new AtomicInteger();
+	
+	// Max calls in progress together
+	private final AtomicInteger peak = new AtomicInteger();
+	
+	// Total time to get the response headers (milliseconds)
+	private final AtomicLong time = new AtomicLong();
+	
+	
+	/**
+	 * Constructor
+	 * @param baseUri Base URI
+	 * @param trustAll Trust every certificate
+	 * @param userId User
+	 * @param password Password
+	 * @param credentials Hash of the credentials
+	 * @param connectTimeout Connection timeout (seconds)
+	 * @param requestTimeout Max time waiting for the response of a call (seconds), 0 no limit
+	 */
+	private JobLogBetaSystemsSession(String baseUri, boolean trustAll, String userId, String password, String credentials, int connectTimeout, int requestTimeout) {
+		
+		// Set base URI
+		this.baseUri = baseUri;
+		
+		// Basic authentication, computed once
+		authorization = "Basic " + Base64.getEncoder().encodeToString((userId + ":" + password).getBytes(StandardCharsets.UTF_8));
+		this.credentials = credentials;
+		
+		// Set timeouts
+		this.connectTimeout = connectTimeout;
+		this.requestTimeout = requestTimeout;
+		
+		// Client builder: HTTP/1.1 keep-alive connections, servlet session cookies kept
+		HttpClient.Builder builder = HttpClient.newBuilder()
+										.version(HttpClient.Version.HTTP_1_1)
+										.followRedirects(HttpClient.Redirect.NORMAL)
+										.cookieHandler(new CookieManager())
+										.connectTimeout(Duration.ofSeconds(Math.max(1, connectTimeout)));
+		
+		// Accept every certificate, whatever the host name
+		if(trustAll) {
+			try {
+				SSLContext context = SSLContext.getInstance("TLS");
+				context.init(null, new TrustManager[] { new TrustAllManager() }, new SecureRandom());
+				builder.sslContext(context);
+			} catch (GeneralSecurityException e) {
+				logger.error("Unable to trust all certificates: " + e.getMessage());
+			}
+		}
+		
+		// Create client
+		client = builder.build();
+	}
+	
+	
+	/**
+	 * Get the session shared by every task calling a base URI with the same user and password
+	 * A new password or timeout replaces the session of the user, with its connections and cookies
+	 * @param baseUri Base URI
+	 * @param trustAll Trust every certificate, whatever the host name
+	 * @param userId User
+	 * @param password Password
+	 * @param connectTimeout Connection timeout (seconds)
+	 * @param requestTimeout Max time waiting for the response of a call (seconds), 0 no limit
+	 * @return Session
+	 */
+	public static JobLogBetaSystemsSession get(String baseUri, boolean trustAll, String userId, String password, int connectTimeout, int requestTimeout) {
+		
+		// Session key
+		String key = baseUri + "|" + trustAll + "|" + userId;
+		
+		// Credentials of the caller
+		String credentials = JobLogDigest.sha256(userId + ":" + password);
+		
+		// Existing session
+		JobLogBetaSystemsSession session = sessions.get(key);
+		if((null != session) && session.matches(credentials, connectTimeout, requestTimeout))
+			return session;
+		
+		// New session, or credentials or timeouts changed
+		return sessions.compute(key, (k, s) -> {
+			
+			// Created meanwhile
+			if((null != s) && s.matches(credentials, connectTimeout, requestTimeout))
+				return s;
+			
+			// Log
+			logger.debug(((null == s) ? "New" : "Settings changed, new") + " BetaSystems session(" + baseUri + ")");
+			
+			return new JobLogBetaSystemsSession(baseUri, trustAll, userId, password, credentials, connectTimeout, requestTimeout);
+		});
+	}
+	
+	
+	/**
+	 * Check if the session has the same credentials and timeouts
+	 * @param credentials Hash of the credentials
+	 * @param connectTimeout Connection timeout (seconds)
+	 * @param requestTimeout Max time waiting for the response of a call (seconds)
+	 * @return True if the same
+	 */
+	private boolean matches(String credentials, int connectTimeout, int requestTimeout) {
+		return this.credentials.equals(credentials) && (this.connectTimeout == connectTimeout) && (this.requestTimeout == requestTimeout);
+	}
+	
+	
+	/**
+	 * Get every session
+	 * @return Sessions
+	 */
+	public static List<JobLogBetaSystemsSession> getSessions() {
+		return new ArrayList<JobLogBetaSystemsSession>(sessions.values());
+	}
+	
+	
+	/**
+	 * Call an URI and read the whole body
+	 * @param uri URI
+	 * @return Body or null in case of errors
+	 */
+	public String getString(String uri) {
+		
+		// Call
+		HttpResponse<String> response = send(uri, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		if(null == response)
+			return null;
+		
+		// Call error
+		if(HTTP_OK != response.statusCode()) {
+			errors.incrementAndGet();
+			logger.error("Call error(" + response.statusCode() + ") URI(" + uri + ")");
+			return null;
+		}
+		
+		return response.body();
+	}
+	
+	
+	/**
+	 * Call an URI, the body is read by the caller and must be closed
+	 * @param uri URI
+	 * @return Response or null in case of errors
+	 */
+	public HttpResponse<InputStream> getStream(String uri) {
+		return send(uri, HttpResponse.BodyHandlers.ofInputStream());
+	}
+	
+	
+	/**
+	 * Call an URI
+	 * @param uri URI
+	 * @param handler Body handler
+	 * @return Response or null in case of errors
+	 */
+	private <T> HttpResponse<T> send(String uri, HttpResponse.BodyHandler<T> handler) {
+		
+		// Count call
+		requests.incrementAndGet();
+		peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+		long start = System.currentTimeMillis();
+		
+		try {
+			// Request with basic authentication
+			HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri))
+									.header("Authorization", authorization)
+									.GET();
+			
+			// Max time waiting for the response
+			if(requestTimeout > 0)
+				builder.timeout(Duration.ofSeconds(requestTimeout));
+			
+			// Call
+			return client.send(builder.build(), handler);
+			
+		} catch (IOException | IllegalArgumentException e) {
+			// Log error
+			errors.incrementAndGet();
+			logger.error("Call error URI(" + uri + "): " + e.getMessage());
+			return null;
+			
+		} catch (InterruptedException e) {
+			// Keep interrupted status
+			errors.incrementAndGet();
+			Thread.currentThread().interrupt();
+			return null;
+			
+		} finally {
+			// Call ended
+			active.decrementAndGet();
+			time.addAndGet(System.currentTimeMillis() - start);
+		}
+	}
+	
+	
+	/**
+	 * Get the base URI
+	 * @return Base URI
+	 */
+	public String getBaseUri() {
+		return baseUri;
+	}
+	
+	
+	/**
+	 * Get the number of calls
+	 * @return Calls
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+	
+	
+	/**
+	 * Get the number of calls in error
+	 * @return Errors
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+	
+	
+	/**
+	 * Get the number of calls in progress
+	 * @return Calls in progress
+	 */
+	public int getActive() {
+		return active.get();
+	}
+	
+	
+	/**
+	 * Get the max number of calls in progress together
+	 * @return Peak
+	 */
+	public int getPeak() {
+		return peak.get();
+	}
+	
+	
+	/**
+	 * Get the average time to get the response headers
+	 * @return Average time (milliseconds)
+	 */
+	public long getAverageTime() {
+		long n = requests.get();
+		return (n > 0) ? time.get() / n : 0;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "BetaSystems session(" + baseUri + ") requests(" + requests.get() + ") errors(" + errors.get() + ") active(" + active.get() + ") peak(" + peak.get() + ") avgTime(" + getAverageTime() + ")";
+	}
+	
+	
+	/**
+	 * Trust manager accepting every certificate
+	 * Being an extended trust manager, the host name is not verified by TLS either
+	 */
+	private static class TrustAllManager extends X509ExtendedTrustManager {
+		
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType) {
+		}
+		
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType) {
+		}
+		
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+		}
+		
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+		}
+		
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+		}
+		
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+		}
+		
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+	}
+}
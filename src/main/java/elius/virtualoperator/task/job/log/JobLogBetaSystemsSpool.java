@@ -0,0 +1,469 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+package elius.virtualoperator.task.job.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.task.job.JobStep;
+
+public class JobLogBetaSystemsSpool {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobLogBetaSystemsSpool.class);
+	
+	// Spool file extension
+	private static final String EXTENSION = ".evospool.gz";
+	
+	// Spool file format version, files of other versions are ignored
+	private static final int VERSION = 2;
+	
+	// Spool of the node
+	private static JobLogBetaSystemsSpool spool;
+	
+	// Spool directory
+	private final Path dir;
+	
+	// File size by key, least recently used first
+	private final LinkedHashMap<String, Long> files;
+	
+	// Max size of the files (bytes)
+	private long maxSize;
+	
+	// Time to live of the files (milliseconds), 0 no expiry
+	private long ttl;
+	
+	// Size of the files (bytes)
+	private long size;
+	
+	// Jobs served by the spool
+	private long hits;
+	
+	// Jobs not served by the spool
+	private long misses;
+	
+	// Files removed to keep the max size
+	private long evictions;
+	
+	
+	/**
+	 * Constructor
+	 * The files left by the previous runs are kept, most recently used last
+	 * @param dir Spool directory
+	 * @param maxSize Max size of the files (bytes)
+	 * @param ttl Time to live of the files (milliseconds), 0 no expiry
+	 * @throws IOException Directory not available
+	 */
+	private JobLogBetaSystemsSpool(Path dir, long maxSize, long ttl) throws IOException {
+		
+		// Set directory
+		this.dir = dir;
+		Files.createDirectories(dir);
+		
+		// Files by key
+		files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+		
+		// Files of the previous runs, least recently used first
+		File[] previous = dir.toFile().listFiles((d, n) -> n.endsWith(EXTENSION));
+		if(null != previous) {
+			Arrays.sort(previous, Comparator.comparingLong(File::lastModified));
+			for(File f : previous) {
+				files.put(f.getName().substring(0, f.getName().length() - EXTENSION.length()), f.length());
+				size += f.length();
+			}
+		}
+		
+		// Set size and remove the files over it
+		configure(maxSize, ttl);
+		
+		// Log
+		logger.debug("Spool(" + dir + ") files(" + files.size() + ") size(" + size + ")");
+	}
+	
+	
+	/**
+	 * Get the spool of the node
+	 * @param dir Spool directory, a new one replaces the current spool
+	 * @param maxSize Max size of the files (bytes), 0 disables the spool
+	 * @param ttl Time to live of the files (milliseconds), 0 no expiry
+	 * @return Spool or null if disabled or not available
+	 */
+	public static synchronized JobLogBetaSystemsSpool get(String dir, long maxSize, long ttl) {
+		
+		// Spool disabled
+		if((maxSize <= 0) || (null == dir) || dir.isEmpty())
+			return null;
+		
+		try {
+			// New or changed directory
+			Path path = Paths.get(dir).toAbsolutePath();
+			if((null == spool) || !spool.dir.equals(path))
+				spool = new JobLogBetaSystemsSpool(path, maxSize, ttl);
+			else
+				spool.configure(maxSize, ttl);
+			
+		} catch (IOException | RuntimeException e) {
+			// Spool not available
+			logger.error("Spool directory(" + dir + ") not available: " + e.getMessage());
+			spool = null;
+		}
+		
+		return spool;
+	}
+	
+	
+	/**
+	 * Set the max size and the time to live, applied to the next operations
+	 * @param maxSize Max size of the files (bytes)
+	 * @param ttl Time to live of the files (milliseconds), 0 no expiry
+	 */
+	public synchronized void configure(long maxSize, long ttl) {
+		this.maxSize = Math.max(0, maxSize);
+		this.ttl = Math.max(0, ttl);
+		
+		// Remove the files over the size
+		evict();
+	}
+	
+	
+	/**
+	 * Read the steps of a job, with their logs
+	 * The job can still be running, so a file older than the time to live is removed
+	 * @param key Job key
+	 * @return Steps or null if missing, expired or not readable
+	 */
+	public List<JobStep> read(String key) {
+		
+		// File name
+		String name = fileName(key);
+		
+		// Missing
+		synchronized (this) {
+			if(null == files.get(name)) {
+				misses++;
+				return null;
+			}
+		}
+		
+		// File
+		Path file = dir.resolve(name + EXTENSION);
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 65536)))) {
+			
+			// Other format or job
+			if((VERSION != in.readInt()) || !key.equals(readString(in)))
+				throw new IOException("invalid header");
+			
+			// Expired, the logs may have changed since written
+			long written = in.readLong();
+			if(isExpired(written)) {
+				// Log
+				logger.debug("Spool file of(" + key + ") expired");
+				
+				// Remove file
+				synchronized (this) {
+					misses++;
+					remove(name);
+				}
+				
+				return null;
+			}
+			
+			// Steps
+			int nSteps = in.readInt();
+			List<JobStep> steps = new ArrayList<JobStep>(nSteps);
+			for(int s = 0; s < nSteps; s++) {
+				
+				// Step
+				JobStep js = new JobStep();
+				js.setName(readString(in));
+				js.setUrl(readString(in));
+				
+				// Lines
+				int nLines = in.readInt();
+				List<String> lines = new ArrayList<String>(nLines);
+				for(int l = 0; l < nLines; l++)
+					lines.add(readString(in));
+				js.setLog(lines);
+				
+				steps.add(js);
+			}
+			
+			// Most recently used, also for the next runs
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			
+			// Count hit
+			synchronized (this) {
+				hits++;
+			}
+			
+			return steps;
+			
+		} catch (IOException | RuntimeException e) {
+			// Log
+			logger.warn("Spool file of(" + key + ") not readable: " + e.getMessage());
+			
+			// Remove file
+			synchronized (this) {
+				misses++;
+				remove(name);
+			}
+			
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Write the steps of a job, with their logs
+	 * The least recently used files are removed over the max size
+	 * @param key Job key
+	 * @param steps Steps
+	 * @return 0 OK, otherwise error
+	 */
+	public int write(String key, List<JobStep> steps) {
+		
+		// File name
+		String name = fileName(key);
+		
+		// Written to a temporary file, renamed when complete
+		Path file = dir.resolve(name + EXTENSION);
+		Path tmp = null;
+		
+		try {
+			tmp = Files.createTempFile(dir, name, ".tmp");
+			
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp), 65536)))) {
+				
+				// Header
+				out.writeInt(VERSION);
+				writeString(out, key);
+				out.writeLong(System.currentTimeMillis());
+				
+				// Steps
+				out.writeInt(steps.size());
+				for(JobStep js : steps) {
+					writeString(out, js.getName());
+					writeString(out, js.getUrl());
+					
+					// Lines
+					List<String> lines = (null != js.getLog()) ? js.getLog() : new ArrayList<String>();
+					out.writeInt(lines.size());
+					for(String line : lines)
+						writeString(out, line);
+				}
+			}
+			
+			// Replace file
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+			// Add file
+			synchronized (this) {
+				Long previous = files.put(name, Files.size(file));
+				size += files.get(name) - ((null != previous) ? previous : 0);
+				
+				// Remove the files over the size
+				evict();
+				
+				// Log
+				logger.debug("Spool(" + dir + ") files(" + files.size() + ") size(" + size + ") hits(" + hits + ") misses(" + misses + ") evictions(" + evictions + ")");
+			}
+			
+			return 0;
+			
+		} catch (IOException | RuntimeException e) {
+			// Log
+			logger.warn("Spool file of(" + key + ") not written: " + e.getMessage());
+			
+			// Remove temporary file
+			try {
+				if(null != tmp)
+					Files.deleteIfExists(tmp);
+			} catch (IOException ex) {
+				logger.warn("Spool temporary file(" + tmp + ") not removed: " + ex.getMessage());
+			}
+			
+			return 1;
+		}
+	}
+	
+	
+	/**
+	 * Check if a file is expired
+	 * @param written Time the file was written (milliseconds)
+	 * @return True if expired
+	 */
+	private synchronized boolean isExpired(long written) {
+		return (ttl > 0) && (System.currentTimeMillis() - written > ttl);
+	}
+	
+	
+	/**
+	 * Remove the least recently used files over the max size
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+		while ((size > maxSize) && it.hasNext()) {
+			
+			// Least recently used
+			Map.Entry<String, Long> e = it.next();
+			
+			// Remove file
+			try {
+				Files.deleteIfExists(dir.resolve(e.getKey() + EXTENSION));
+			} catch (IOException ex) {
+				logger.warn("Spool file(" + e.getKey() + ") not removed: " + ex.getMessage());
+			}
+			size -= e.getValue();
+			it.remove();
+			evictions++;
+		}
+	}
+	
+	
+	/**
+	 * Remove a file
+	 * @param name File name
+	 */
+	private void remove(String name) {
+		
+		// Forget file
+		Long length = files.remove(name);
+		if(null != length)
+			size -= length;
+		
+		// Remove file
+		try {
+			Files.deleteIfExists(dir.resolve(name + EXTENSION));
+		} catch (IOException e) {
+			logger.warn("Spool file(" + name + ") not removed: " + e.getMessage());
+		}
+	}
+	
+	
+	/**
+	 * Get the file name of a job: the SHA-256 of the key
+	 * @param key Job key
+	 * @return File name, without extension
+	 */
+	private static String fileName(String key) {
+		return JobLogDigest.sha256(key);
+	}
+	
+	
+	/**
+	 * Write a string record: length and UTF-8 bytes, -1 for null
+	 * @param out Output
+	 * @param s String
+	 * @throws IOException Write error
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if(null == s) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+	
+	
+	/**
+	 * Read a string record
+	 * @param in Input
+	 * @return String
+	 * @throws IOException Read error
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+	
+	
+	/**
+	 * Get the number of files
+	 * @return Files
+	 */
+	public synchronized int getFiles() {
+		return files.size();
+	}
+	
+	
+	/**
+	 * Get the size of the files
+	 * @return Size (bytes)
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+	
+	
+	/**
+	 * Get the number of jobs served by the spool
+	 * @return Hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	
+	/**
+	 * Get the number of jobs not served by the spool
+	 * @return Misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	
+	/**
+	 * Get the number of files removed to keep the max size
+	 * @return Evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+}
@@ -19,14 +19,23 @@
 
 package elius.virtualoperator.task.job.log;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
+import java.util.zip.CRC32;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,6 +43,9 @@ import org.apache.logging.log4j.Logger;
 import elius.virtualoperator.task.job.Job;
 import elius.virtualoperator.task.job.JobAttributes;
 import elius.virtualoperator.task.job.JobStep;
+import elius.virtualoperator.task.job.search.JobSearch;
+import elius.virtualoperator.task.job.search.JobSearchRepository;
+import elius.virtualoperator.task.job.search.JobSearchScan;
 import elius.webapp.framework.properties.PropertiesManager;
 import elius.webapp.framework.properties.PropertiesManagerFactory;
 
@@ -42,6 +54,18 @@ public class JobLogFile extends JobLog {
 	// Get logger
 	protected static Logger logger = LogManager.getLogger(JobLogFile.class);	
 
+	// Max size of a file region mapped in memory (bytes)
+	private static final long MAP_WINDOW_SIZE = 1L << 30;
+
+	// Max bytes of the file head used to detect a rotation in tail mode
+	private static final int TAIL_HEAD_SIZE = 1024;
+
+	// Max bytes read at a time in tail mode
+	private static final int TAIL_READ_SIZE = 8 << 20;
+
+	// Max attempts to claim the appended lines in tail mode
+	private static final int TAIL_CLAIM_ATTEMPTS = 3;
+
 	// Properties file
 	private PropertiesManager appProperties;
 	
@@ -54,6 +78,9 @@ public class JobLogFile extends JobLog {
 	// Max log size (bytes)
 	private long maxLogSize;
 	
+	// Read mode
+	private JobLogFileMode mode;
+	
 	// Job step
 	private JobStep jobStep;
 	
@@ -96,6 +123,17 @@ public class JobLogFile extends JobLog {
 		// Get Log max size to prevent overload
 		maxLogSize = appProperties.getLong(JobAttributes.PROP_TASK_JOB_LOG_FILE_MAXSIZE, JobAttributes.DEFAULT_TASK_JOB_LOG_FILE_MAXSIZE);
 		
+		// Read mode
+		mode = JobLogFileMode.getByName(appProperties.get(JobAttributes.PROP_TASK_JOB_LOG_FILE_MODE, JobAttributes.DEFAULT_TASK_JOB_LOG_FILE_MODE));
+		
+		// Invalid mode
+		if(JobLogFileMode.UNKNOWN == mode) {
+			// Log
+			logger.warn("Invalid job log file mode, " + JobLogFileMode.LOAD.getName() + " will be used");
+			// Set default
+			mode = JobLogFileMode.LOAD;
+		}
+		
 		// Log
 		logger.debug("Job log file initialized");
 		
@@ -140,6 +178,24 @@ public class JobLogFile extends JobLog {
 			
 		}
 
+        // Because mono-step, set the same job information
+        // Name
+        jobStep.setName(job.getName());
+        // Return code
+        jobStep.setRc(job.getRc());
+        // Log URL
+        jobStep.setUrl(job.getUrl());
+        
+        // Log is read during the search
+        if(JobLogFileMode.LOAD != mode) {
+        	
+    		// Log
+    		logger.debug("Job log file will be read during the search, mode(" + mode.getName() + ")");
+    		
+        	// Return OK
+        	return 0;
+        }
+        
         // Get file size
         long fileSize = file.length();
         
@@ -166,17 +222,8 @@ public class JobLogFile extends JobLog {
 			// Set content
 			jobStep.setLog(Files.readAllLines(path, StandardCharsets.UTF_8));
 
-	        // Create job step
 	        // Scripts or daemon output in general has one step
-	        jobStep.setnLines(jobStep.getnLines());
-
-	        // Because mono-step, set the same job information
-	        // Name
-	        jobStep.setName(job.getName());
-	        // Return code
-	        jobStep.setRc(job.getRc());
-	        // Log URL
-	        jobStep.setUrl(job.getUrl());
+	        jobStep.setnLines(jobStep.getLog().size());
 			
 		} catch (IOException e) {
 			
@@ -198,6 +245,485 @@ public class JobLogFile extends JobLog {
 	
 	
 	
+	/**
+	 * Search messages in the fetched log
+	 * In stream mode the log is read line by line and never kept in memory,
+	 * in map mode the file is mapped in memory and only candidate lines are decoded,
+	 * in tail mode only the lines appended since the last task are searched
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, otherwise error
+	 */
+	public int search(JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Log already in memory
+		if(JobLogFileMode.LOAD == mode) {
+			jobSearch.search(jobStep, jsRepo);
+			return 0;
+		}
+		
+		// Search the mapped file
+		if(JobLogFileMode.MAP == mode)
+			return searchMapped(jobSearch, jsRepo);
+		
+		// Search the lines appended since the last task
+		if(JobLogFileMode.TAIL == mode)
+			return searchTail(jobSearch, jsRepo);
+		
+		// Log
+		logger.trace("Stream job log file");
+		
+		// Read and search line by line
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(job.getUrl()), StandardCharsets.UTF_8)) {
+			
+			// Search
+			jobSearch.search(jobStep.getName(), reader, jsRepo);
+			
+		} catch (IOException e) {
+			
+			// Log error
+			logger.error("Error reading log(" + job.getUrl() + ")");
+			logger.error(e.getMessage());
+			
+			// Return error
+			return 1;
+		}
+		
+		// Return OK
+		return 0;
+	}
+	
+	
+	
+	/**
+	 * Search messages in the file mapped in memory
+	 * Files bigger than the map window are mapped one region at a time, every region ends with a complete line
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, otherwise error
+	 */
+	private int searchMapped(JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Log
+		logger.trace("Map job log file");
+		
+		// Open file
+		try (FileChannel channel = FileChannel.open(Paths.get(job.getUrl()), StandardOpenOption.READ)) {
+			
+			// Start scan
+			JobSearchScan scan = jobSearch.open(jobStep.getName(), jsRepo);
+			
+			// File size
+			long size = channel.size();
+			
+			// Search the whole file: a file truncated while mapped fails the access to the memory
+			try {
+				searchRegion(channel, 0, size, jobSearch, scan);
+			} catch (InternalError e) {
+				throw new IOException("Log truncated while mapped: " + e.getMessage(), e);
+			}
+			
+			// Add matches
+			jobSearch.add(scan);
+			
+			// Log
+			logger.debug("Mapped search ended, bytes(" + size + ") lines(" + scan.getLines() + ")");
+			
+		} catch (IOException e) {
+			
+			// Log error
+			logger.error("Error reading log(" + job.getUrl() + ")");
+			logger.error(e.getMessage());
+			
+			// Return error
+			return 1;
+		}
+		
+		// Return OK
+		return 0;
+	}
+	
+	
+	
+	/**
+	 * Search messages in the lines appended since the last task
+	 * The offset reached is saved by job name with the file identity: when the file
+	 * is rotated, truncated or rewritten the search restarts from the beginning, after the
+	 * lines left in the previous file when it is still in the same directory.
+	 * Only complete lines are searched, a line still being written is searched by the next task.
+	 * The lines are claimed before the search, so two tasks of the same job never search them both.
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, otherwise error
+	 */
+	private int searchTail(JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Log
+		logger.trace("Tail job log file");
+		
+		// Offsets database
+		JobLogOffsetDatabase offsetDb = new JobLogOffsetDatabase();
+		
+		// Claim and search the appended lines, again if another task claimed them first
+		for (int attempt = 0; attempt < TAIL_CLAIM_ATTEMPTS; attempt++) {
+			int rc = searchTail(offsetDb, jobSearch, jsRepo);
+			if(rc >= 0)
+				return rc;
+		}
+		
+		// Log error
+		logger.error("Log(" + job.getUrl() + ") claimed by other tasks of job(" + job.getName() + ") " + TAIL_CLAIM_ATTEMPTS + " times, search skipped");
+		
+		// Return error
+		return 1;
+	}
+	
+	
+	
+	/**
+	 * Claim and search the lines appended since the last task
+	 * @param offsetDb Offsets database
+	 * @param jobSearch Job search where matches are added
+	 * @param jsRepo Job search repository
+	 * @return 0 OK, 1 error, -1 lines claimed by another task
+	 */
+	private int searchTail(JobLogOffsetDatabase offsetDb, JobSearch jobSearch, JobSearchRepository jsRepo) {
+		
+		// Log file
+		Path file = Paths.get(job.getUrl());
+		
+		// Offset saved by the last task
+		JobLogOffset last = new JobLogOffset();
+		int found = offsetDb.get(job.getName(), last);
+		
+		// Offset not readable: the appended lines are unknown
+		if(-1 == found) {
+			logger.error("Unable to read log offset of job(" + job.getName() + ")");
+			return 1;
+		}
+		
+		// First task of the job
+		if(1 == found)
+			last = null;
+		
+		// New offset
+		JobLogOffset offset = new JobLogOffset();
+		offset.setName(job.getName());
+		offset.setUrl(job.getUrl());
+		
+		// Open file
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			
+			// File identity
+			Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+			offset.setFileKey((null != fileKey) ? fileKey.toString() : "");
+			
+			// File size
+			long size = channel.size();
+			offset.setSize(size);
+			
+			// Start from the last offset if the file is the same
+			long start = 0;
+			
+			// Previous file, with the lines appended after the last offset
+			boolean changed = false;
+			if(null != last) {
+				
+				if(!last.getUrl().equals(offset.getUrl())) {
+					// Log
+					logger.info("Log(" + job.getUrl() + ") changed URL, search from the beginning");
+				} else if(!last.getFileKey().isEmpty() && !last.getFileKey().equals(offset.getFileKey())) {
+					// Log
+					logger.info("Log(" + job.getUrl() + ") rotated, search from the beginning");
+					changed = true;
+				} else if(size < last.getOffset()) {
+					// Log
+					logger.info("Log(" + job.getUrl() + ") truncated, search from the beginning");
+					changed = true;
+				} else if(last.getHeadHash() != headHash(channel, last.getHeadLength())) {
+					// Log
+					logger.info("Log(" + job.getUrl() + ") rewritten, search from the beginning");
+					changed = true;
+				} else {
+					// Same file
+					start = last.getOffset();
+				}
+			}
+			
+			// End after the last complete line
+			long end = lastLineEnd(channel, start, size);
+			offset.setOffset(end);
+			
+			// File head
+			offset.setHeadLength((int)Math.min(size, TAIL_HEAD_SIZE));
+			offset.setHeadHash(headHash(channel, offset.getHeadLength()));
+			
+			// Claim the lines
+			int claimed = offsetDb.claim(last, offset);
+			if(1 == claimed) {
+				logger.debug("Log(" + job.getUrl() + ") lines claimed by another task of job(" + job.getName() + ")");
+				return -1;
+			}
+			
+			// Offset not saved: the next task searches the same lines again
+			if(0 != claimed)
+				logger.error("Unable to save log offset of job(" + job.getName() + ")");
+			
+			try {
+				
+				// Start scan
+				JobSearchScan scan = jobSearch.open(jobStep.getName(), jsRepo);
+				
+				// Lines left in the previous file
+				if(changed)
+					searchPrevious(file, last, jobSearch, scan);
+				
+				// Search appended lines
+				readRegion(channel, start, end, jobSearch, scan);
+				
+				// Add matches
+				jobSearch.add(scan);
+				
+				// Log
+				logger.debug("Tail search ended, from(" + start + ") to(" + end + ") lines(" + scan.getLines() + ")");
+				
+			} catch (IOException e) {
+				
+				// Give back the lines to the next task
+				if((0 == claimed) && (0 != offsetDb.release(offset, last)))
+					logger.error("Unable to restore log offset of job(" + job.getName() + ")");
+				
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			
+			// Log error
+			logger.error("Error reading log(" + job.getUrl() + ")");
+			logger.error(e.getMessage());
+			
+			// Return error
+			return 1;
+		}
+		
+		// Return OK
+		return 0;
+	}
+	
+	
+	
+	/**
+	 * Search the lines appended to the previous file after the last offset, when the file
+	 * is still in the same directory with a name starting with the log name, like the ones
+	 * left by logrotate. Otherwise the lines are lost and only logged.
+	 * @param file Log file
+	 * @param last Offset of the previous file
+	 * @param jobSearch Job search
+	 * @param scan Scan where matches are added
+	 */
+	private void searchPrevious(Path file, JobLogOffset last, JobSearch jobSearch, JobSearchScan scan) {
+		
+		// Files of the directory with the log name, most recent first
+		File[] candidates = file.toAbsolutePath().getParent().toFile().listFiles((d, n) -> n.startsWith(file.getFileName().toString()) && !n.equals(file.getFileName().toString()));
+		if(null != candidates) {
+			Arrays.sort(candidates, Comparator.comparingLong(File::lastModified).reversed());
+			
+			for (File candidate : candidates) {
+				
+				// Too short to be the previous file
+				if(!candidate.isFile() || (candidate.length() < last.getOffset()))
+					continue;
+				
+				try (FileChannel channel = FileChannel.open(candidate.toPath(), StandardOpenOption.READ)) {
+					
+					// Same identity, moved away, or same head, copied away
+					Object fileKey = Files.readAttributes(candidate.toPath(), BasicFileAttributes.class).fileKey();
+					boolean moved = !last.getFileKey().isEmpty() && last.getFileKey().equals(String.valueOf(fileKey));
+					if(!moved && (last.getHeadHash() != headHash(channel, last.getHeadLength())))
+						continue;
+					
+					// Search the complete lines after the last offset
+					long end = lastLineEnd(channel, last.getOffset(), channel.size());
+					readRegion(channel, last.getOffset(), end, jobSearch, scan);
+					
+					// Log
+					logger.info("Log(" + job.getUrl() + ") previous file(" + candidate + ") searched from(" + last.getOffset() + ") to(" + end + ")");
+					return;
+					
+				} catch (IOException e) {
+					// Log
+					logger.warn("Log(" + job.getUrl() + ") previous file(" + candidate + ") not readable: " + e.getMessage());
+				}
+			}
+		}
+		
+		// Lines lost
+		logger.warn("Log(" + job.getUrl() + ") previous file not found: lines appended after offset(" + last.getOffset() + ") not searched, "
+					+ "at least (" + Math.max(0, last.getSize() - last.getOffset()) + ") bytes seen by the last task plus the ones appended later");
+	}
+	
+	
+	
+	/**
+	 * Search the lines of a file region, reading up to TAIL_READ_SIZE bytes at a time
+	 * The file is read and not mapped: a file truncated while it is read, for example by a
+	 * copy and truncate rotation, ends the region instead of failing the access to the memory
+	 * @param channel File channel
+	 * @param position Region start, at the beginning of a line
+	 * @param end Region end
+	 * @param jobSearch Job search
+	 * @param scan Scan where matches are added
+	 * @throws IOException Error reading the file
+	 */
+	private void readRegion(FileChannel channel, long position, long end, JobSearch jobSearch, JobSearchScan scan) throws IOException {
+		
+		// Read buffer
+		ByteBuffer buffer = ByteBuffer.allocate((int)Math.max(1, Math.min(end - position, TAIL_READ_SIZE)));
+		
+		// Read one window at a time
+		while (position < end) {
+			
+			// Read window
+			int length = (int)Math.min(end - position, buffer.capacity());
+			buffer.clear();
+			buffer.limit(length);
+			boolean truncated = false;
+			while (buffer.hasRemaining() && !truncated)
+				truncated = (channel.read(buffer, position + buffer.position()) < 0);
+			
+			// File truncated while read: search the lines read
+			if(truncated) {
+				logger.warn("Log(" + job.getUrl() + ") truncated while read at(" + (position + buffer.position()) + ")");
+				length = buffer.position();
+				end = position + length;
+			}
+			
+			// Cut the window after the last line feed, unless it's the last one
+			int limit = length;
+			if(position + length < end) {
+				int i = limit - 1;
+				while((i >= 0) && ('\n' != buffer.get(i)))
+					i--;
+				if(i >= 0)
+					limit = i + 1;
+			}
+			buffer.position(0);
+			buffer.limit(limit);
+			
+			// Search window, in parallel chunks when configured
+			jobSearch.search(scan, buffer);
+			
+			// Next window
+			position += limit;
+		}
+	}
+
+	
+	
+	
+	/**
+	 * Search the lines of a file region, mapping in memory up to MAP_WINDOW_SIZE bytes at a time
+	 * @param channel File channel
+	 * @param position Region start, at the beginning of a line
+	 * @param end Region end
+	 * @param jobSearch Job search
+	 * @param scan Scan where matches are added
+	 * @throws IOException Error mapping the file
+	 */
+	private void searchRegion(FileChannel channel, long position, long end, JobSearch jobSearch, JobSearchScan scan) throws IOException {
+		
+		// Map one window at a time
+		while (position < end) {
+			
+			// Map window
+			long length = Math.min(end - position, MAP_WINDOW_SIZE);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			
+			// Cut the window after the last line feed, unless it's the last one
+			int limit = (int)length;
+			if(position + length < end) {
+				int i = limit - 1;
+				while((i >= 0) && ('\n' != buffer.get(i)))
+					i--;
+				if(i >= 0)
+					limit = i + 1;
+			}
+			buffer.limit(limit);
+			
+			// Search window, in parallel chunks when configured
+			jobSearch.search(scan, buffer);
+			
+			// Next window
+			position += limit;
+		}
+	}
+	
+	
+	
+	/**
+	 * Find the end of the last complete line
+	 * @param channel File channel
+	 * @param start Search start
+	 * @param size File size
+	 * @return Position after the last line feed, start if there are no complete lines
+	 * @throws IOException Error reading the file
+	 */
+	private long lastLineEnd(FileChannel channel, long start, long size) throws IOException {
+		
+		// Read backwards one block at a time
+		ByteBuffer block = ByteBuffer.allocate(8192);
+		long end = size;
+		while (end > start) {
+			
+			// Read block
+			int length = (int)Math.min(end - start, block.capacity());
+			block.clear();
+			block.limit(length);
+			while (block.hasRemaining()) {
+				if (channel.read(block, end - length + block.position()) < 0)
+					return start;
+			}
+			
+			// Last line feed of the block
+			for (int i = length - 1; i >= 0; i--) {
+				if ('\n' == block.get(i))
+					return end - length + i + 1;
+			}
+			
+			// Previous block
+			end -= length;
+		}
+		
+		// No complete lines
+		return start;
+	}
+	
+	
+	
+	/**
+	 * Compute the hash of the file head
+	 * @param channel File channel
+	 * @param length Head length
+	 * @return CRC32 of the head, -1 if the file is shorter
+	 * @throws IOException Error reading the file
+	 */
+	private long headHash(FileChannel channel, int length) throws IOException {
+		
+		// Read head
+		ByteBuffer head = ByteBuffer.allocate(length);
+		while (head.hasRemaining()) {
+			if (channel.read(head, head.position()) < 0)
+				return -1;
+		}
+		
+		// Compute hash
+		CRC32 crc = new CRC32();
+		crc.update(head.array(), 0, length);
+		return crc.getValue();
+	}
+	
+	
+	
 	/**
 	 * Retrieve real job log filename using job info, mask and path
 	 * @return Blank in case of errors, otherwise the filename
@@ -0,0 +1,88 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+package elius.virtualoperator.task.job.log;
+
+public enum JobLogFileMode {
+	LOAD(0, "load"), 
+	STREAM(1, "stream"),
+	MAP(2, "map"),
+	TAIL(3, "tail"),
+	UNKNOWN(999, "unknown");
+	
+	// Mode name
+	private final String name;
+	// Mode id
+	private final int id;
+	
+	
+	/**
+	 * Constructor
+	 * @param id Mode id
+	 * @param name Mode name
+	 */
+	JobLogFileMode(int id, String name) {
+		this.name = name;
+		this.id = id;
+	}
+	
+	
+	/**
+	 * Get mode name
+	 * @return Mode name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	
+	/**
+	 * Get mode id
+	 * @return Mode id
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	
+	/**
+	 * Get mode by id
+	 * @param id Mode id
+	 * @return Mode
+	 */
+	public static JobLogFileMode getById(int id) {
+	    for(JobLogFileMode e : values()) {
+	        if(e.id == id) return e;
+	    }
+	    return UNKNOWN;
+	}
+	
+	
+	/**
+	 * Get mode by name, used in the properties file
+	 * @param name Mode name
+	 * @return Mode
+	 */
+	public static JobLogFileMode getByName(String name) {
+	    for(JobLogFileMode e : values()) {
+	        if(e.name.equalsIgnoreCase(name)) return e;
+	    }
+	    return UNKNOWN;
+	}
+}
@@ -0,0 +1,214 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+
+package elius.virtualoperator.task.job.log;
+
+import java.sql.Timestamp;
+
+public class JobLogOffset {
+	
+	// Job name
+	private String name;
+	
+	// Log URL
+	private String url;
+	
+	// File identity given by the file system, blank if not available
+	private String fileKey;
+	
+	// Number of bytes of the file head used for the hash
+	private int headLength;
+	
+	// File head hash (CRC32)
+	private long headHash;
+	
+	// Offset of the first byte not scanned yet
+	private long offset;
+	
+	// File size at the last scan
+	private long size;
+	
+	// Last update time stamp
+	private Timestamp updated;
+	
+	
+	/**
+	 * Constructor
+	 */
+	public JobLogOffset() {
+		
+		// Initialize job name
+		name = "";
+		
+		// Initialize URL
+		url = "";
+		
+		// Initialize file key
+		fileKey = "";
+		
+		// Initialize update time stamp
+		updated = new Timestamp(0);
+	}
+	
+	
+	/**
+	 * Get job name
+	 * @return Job name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	
+	/**
+	 * Set job name
+	 * @param name Job name
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+	
+	
+	/**
+	 * Get log URL
+	 * @return Log URL
+	 */
+	public String getUrl() {
+		return url;
+	}
+	
+	
+	/**
+	 * Set log URL
+	 * @param url Log URL
+	 */
+	public void setUrl(String url) {
+		this.url = url;
+	}
+	
+	
+	/**
+	 * Get file key
+	 * @return File key, blank if not available
+	 */
+	public String getFileKey() {
+		return fileKey;
+	}
+	
+	
+	/**
+	 * Set file key
+	 * @param fileKey File key
+	 */
+	public void setFileKey(String fileKey) {
+		this.fileKey = fileKey;
+	}
+	
+	
+	/**
+	 * Get the number of bytes of the file head used for the hash
+	 * @return Head length
+	 */
+	public int getHeadLength() {
+		return headLength;
+	}
+	
+	
+	/**
+	 * Set the number of bytes of the file head used for the hash
+	 * @param headLength Head length
+	 */
+	public void setHeadLength(int headLength) {
+		this.headLength = headLength;
+	}
+	
+	
+	/**
+	 * Get file head hash
+	 * @return Head hash
+	 */
+	public long getHeadHash() {
+		return headHash;
+	}
+	
+	
+	/**
+	 * Set file head hash
+	 * @param headHash Head hash
+	 */
+	public void setHeadHash(long headHash) {
+		this.headHash = headHash;
+	}
+	
+	
+	/**
+	 * Get the offset of the first byte not scanned yet
+	 * @return Offset
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	
+	
+	/**
+	 * Set the offset of the first byte not scanned yet
+	 * @param offset Offset
+	 */
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+	
+	
+	/**
+	 * Get file size at the last scan
+	 * @return File size
+	 */
+	public long getSize() {
+		return size;
+	}
+	
+	
+	/**
+	 * Set file size at the last scan
+	 * @param size File size
+	 */
+	public void setSize(long size) {
+		this.size = size;
+	}
+	
+	
+	/**
+	 * Get last update time stamp
+	 * @return Update time stamp
+	 */
+	public Timestamp getUpdated() {
+		return updated;
+	}
+	
+	
+	/**
+	 * Set last update time stamp
+	 * @param updated Update time stamp
+	 */
+	public void setUpdated(Timestamp updated) {
+		this.updated = updated;
+	}
+	
+}
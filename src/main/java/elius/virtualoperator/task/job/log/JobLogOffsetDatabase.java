@@ -0,0 +1,234 @@
+/**
+	Licensed to the Apache Software Foundation (ASF) under one
+	or more contributor license agreements.  See the NOTICE file
+	distributed with this work for additional information
+	regarding copyright ownership.  The ASF licenses this file
+	to you under the Apache License, Version 2.0 (the
+	"License"); you may not use this file except in compliance
+	with the License.  You may obtain a copy of the License at
+	
+	  http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing,
+	software distributed under the License is distributed on an
+	"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+	KIND, either express or implied.  See the License for the
+	specific language governing permissions and limitations
+	under the License.
+*/
+
+
+package elius.virtualoperator.task.job.log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import elius.virtualoperator.VirtualOperatorAttributes;
+import elius.virtualoperator.db.DBConnection;
+import elius.webapp.framework.db.DBManager;
+
+public class JobLogOffsetDatabase {
+	
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobLogOffsetDatabase.class);
+	
+	// Database interface
+	private DBManager db;
+	
+	// Insert the offset of a job log
+	private static final String SQL_INSERT = "INSERT INTO JOB_LOG_OFFSET (NAME, URL, FILE_KEY, HEAD_LENGTH, HEAD_HASH, LOG_OFFSET, LOG_SIZE, UPDATED) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+	
+	// Get the offset of a job log
+	private static final String SQL_SELECT = "SELECT * FROM JOB_LOG_OFFSET WHERE NAME = ? FOR FETCH ONLY";
+	
+	// Update the offset of a job log
+	private static final String SQL_UPDATE = "UPDATE JOB_LOG_OFFSET SET URL = ?, FILE_KEY = ?, HEAD_LENGTH = ?, HEAD_HASH = ?, LOG_OFFSET = ?, LOG_SIZE = ?, UPDATED = CURRENT_TIMESTAMP WHERE NAME = ?";
+	
+	// Update the offset of a job log only if it is still the one read
+	private static final String SQL_UPDATE_CLAIM = SQL_UPDATE + " AND URL = ? AND FILE_KEY = ? AND HEAD_HASH = ? AND LOG_OFFSET = ? AND LOG_SIZE = ?";
+	
+	// Delete the offset of a job log only if it is still the one saved
+	private static final String SQL_DELETE_CLAIM = "DELETE FROM JOB_LOG_OFFSET WHERE NAME = ? AND URL = ? AND FILE_KEY = ? AND HEAD_HASH = ? AND LOG_OFFSET = ? AND LOG_SIZE = ?";
+	
+	
+	/**
+	 * Constructor
+	 */
+	public JobLogOffsetDatabase() {
+		// Initialize database manager with the virtual operator data-source name
+		db = new DBManager(VirtualOperatorAttributes.DATASOURCE_EVO);
+	}
+	
+	
+	/**
+	 * Get the offset of a job log
+	 * @param name Job name
+	 * @param offset Offset, filled if present
+	 * @return 0 Present, 1 Not present, -1 Error
+	 */
+	public int get(String name, JobLogOffset offset) {
+		// Log
+		logger.trace("Get log offset of job(" + name + ")");
+		
+		// Get offset
+		List<Map<String, Object>> table = db.executeQuery(SQL_SELECT, name);
+		
+		// Check the result
+		if (null == table) {
+			// Log the error
+			logger.error("No rows fetched");
+			// Return error
+			return -1;
+		}
+		
+		// Not present
+		if (table.isEmpty())
+			return 1;
+		
+		// Offset row
+		Map<String, Object> tableRow = table.get(0);
+		
+		// Set job name
+		offset.setName((String)tableRow.get("NAME"));
+		// Set URL
+		offset.setUrl((String)tableRow.get("URL"));
+		// Set file key
+		offset.setFileKey((String)tableRow.get("FILE_KEY"));
+		// Set head length
+		offset.setHeadLength((int)tableRow.get("HEAD_LENGTH"));
+		// Set head hash
+		offset.setHeadHash((long)tableRow.get("HEAD_HASH"));
+		// Set offset
+		offset.setOffset((long)tableRow.get("LOG_OFFSET"));
+		// Set size
+		offset.setSize((long)tableRow.get("LOG_SIZE"));
+		// Set update time stamp
+		offset.setUpdated((Timestamp)tableRow.get("UPDATED"));
+		
+		// Return present
+		return 0;
+	}
+	
+	
+	/**
+	 * Claim the lines of a job log up to a new offset: the offset is saved only if it is
+	 * still the one read, so two tasks of the same job never search the same lines
+	 * @param last Offset read, null if the job log had no offset
+	 * @param offset New offset
+	 * @return 0 Claimed, 1 Claimed by another task, -1 Error
+	 */
+	public int claim(JobLogOffset last, JobLogOffset offset) {
+		// Log
+		logger.trace("Claim log offset of job(" + offset.getName() + ") offset(" + offset.getOffset() + ")");
+		
+		try (Connection connection = DBConnection.get();
+				PreparedStatement statement = connection.prepareStatement((null == last) ? SQL_INSERT : SQL_UPDATE_CLAIM)) {
+			
+			// First offset of the job log
+			if(null == last) {
+				statement.setString(1, offset.getName());
+				setOffset(statement, 2, offset);
+				
+				// Inserted, unless another task inserted it first
+				statement.executeUpdate();
+				return 0;
+			}
+			
+			// New offset
+			setOffset(statement, 1, offset);
+			statement.setString(7, offset.getName());
+			
+			// Offset read
+			setVersion(statement, 8, last);
+			
+			// Updated, unless another task changed it first
+			return (statement.executeUpdate() > 0) ? 0 : 1;
+			
+		} catch (SQLException e) {
+			
+			// Inserted by another task: integrity constraint violation
+			if((null == last) && (null != e.getSQLState()) && e.getSQLState().startsWith("23"))
+				return 1;
+			
+			// Log the error
+			logger.error("Claim error");
+			logger.error(e.getMessage());
+			// Return error
+			return -1;
+		}
+	}
+	
+	
+	/**
+	 * Give back the lines claimed and not searched: the offset read is restored
+	 * @param offset Offset claimed
+	 * @param last Offset read, null if the job log had no offset
+	 * @return 0 Successful, 1 Error
+	 */
+	public int release(JobLogOffset offset, JobLogOffset last) {
+		// Log
+		logger.trace("Release log offset of job(" + offset.getName() + ") offset(" + offset.getOffset() + ")");
+		
+		// Restore the offset read
+		if(null != last)
+			return (0 == claim(offset, last)) ? 0 : 1;
+		
+		try (Connection connection = DBConnection.get();
+				PreparedStatement statement = connection.prepareStatement(SQL_DELETE_CLAIM)) {
+			
+			// Delete the offset claimed
+			statement.setString(1, offset.getName());
+			setVersion(statement, 2, offset);
+			statement.executeUpdate();
+			return 0;
+			
+		} catch (SQLException e) {
+			// Log the error
+			logger.error("Release error");
+			logger.error(e.getMessage());
+			// Return error
+			return 1;
+		}
+	}
+	
+	
+	/**
+	 * Set the offset columns: URL, file key, head length, head hash, offset and size
+	 * @param statement Statement
+	 * @param index Index of the first column
+	 * @param offset Offset
+	 * @throws SQLException Error setting the parameters
+	 */
+	private static void setOffset(PreparedStatement statement, int index, JobLogOffset offset) throws SQLException {
+		statement.setString(index, offset.getUrl());
+		statement.setString(index + 1, offset.getFileKey());
+		statement.setInt(index + 2, offset.getHeadLength());
+		statement.setLong(index + 3, offset.getHeadHash());
+		statement.setLong(index + 4, offset.getOffset());
+		statement.setLong(index + 5, offset.getSize());
+	}
+	
+	
+	/**
+	 * Set the columns identifying an offset: URL, file key, head hash, offset and size
+	 * @param statement Statement
+	 * @param index Index of the first column
+	 * @param offset Offset
+	 * @throws SQLException Error setting the parameters
+	 */
+	private static void setVersion(PreparedStatement statement, int index, JobLogOffset offset) throws SQLException {
+		statement.setString(index, offset.getUrl());
+		statement.setString(index + 1, offset.getFileKey());
+		statement.setLong(index + 2, offset.getHeadHash());
+		statement.setLong(index + 3, offset.getOffset());
+		statement.setLong(index + 4, offset.getSize());
+	}
+	
+}
@@ -20,88 +20,289 @@
 
 package elius.virtualoperator.task.job.search;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import elius.virtualoperator.task.job.JobAttributes;
 import elius.virtualoperator.task.job.JobStep;
+import elius.webapp.framework.properties.PropertiesManager;
+import elius.webapp.framework.properties.PropertiesManagerFactory;
 
 public class JobSearch {
 
 	// Get logger
 	private static Logger logger = LogManager.getLogger(JobSearch.class);
 	
+	// Min lines of a chunk searched in parallel
+	private static final int MIN_CHUNK_LINES = 10000;
+	
+	// Min bytes of a chunk searched in parallel
+	private static final int MIN_CHUNK_BYTES = 1 << 20;
+	
+	// Pool shared by all the parallel searches, created at the first parallel search
+	private static ForkJoinPool pool;
+	
 	// Matches
 	List<JobSearchMatch> jsMatches;
 	
+	// Max number of chunks of a log searched in parallel
+	private final int parallelism;
+	
+	
+	/**
+	 * Constructor
+	 * The max number of chunks of a log searched in parallel is read from the job properties
+	 */
+	public JobSearch() {
+		this(PropertiesManagerFactory.getInstance(JobAttributes.DEFAULT_JOB_PROPERTIES_FILE));
+	}
+	
+	
+	/**
+	 * Constructor
+	 * @param appProperties Job properties
+	 */
+	private JobSearch(PropertiesManager appProperties) {
+		this(appProperties.getInt(JobAttributes.PROP_TASK_JOB_SEARCH_PARALLELISM, JobAttributes.DEFAULT_TASK_JOB_SEARCH_PARALLELISM));
+	}
+	
+	
+	/**
+	 * Constructor
+	 * @param parallelism Max number of chunks of a log searched in parallel, 1 to search on the calling thread
+	 */
+	public JobSearch(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
 	
 	/**
 	 * Search matches in the job step log
+	 * Big logs are split in chunks searched in parallel, matches keep the line order
 	 * @param jobStep Job step
 	 * @param jsRepo Job search repository
 	 * @return The number of matches
 	 */
 	public int search(JobStep jobStep, JobSearchRepository jsRepo) {
 		
+		// Add matches and return the number of matches
+		return add(scan(jobStep, jsRepo));
+	}
+	
+	
+	/**
+	 * Search matches in the job step log, without adding them to this search
+	 * Steps searched by more threads are added with add() in the step order
+	 * @param jobStep Job step
+	 * @param jsRepo Job search repository
+	 * @return Completed scan
+	 */
+	public JobSearchScan scan(JobStep jobStep, JobSearchRepository jsRepo) {
+		
 		// Log
 		logger.trace("Search: use repositorty(" + jsRepo.getRepository() + ") for job step("+ jobStep.getName() + ")");
 		
+		// Log lines
+		List<String> log = jobStep.getLog();
 		
-		// Initialize match list
-		if(null == jsMatches)
-			jsMatches = new ArrayList<JobSearchMatch>();
-		
+		// Number of chunks
+		int nChunks = Math.min(parallelism, log.size() / MIN_CHUNK_LINES);
 		
-		// Get search entries
-		List<String> searchEntries = jsRepo.getEntries();
+		// Start scan
+		JobSearchScan scan = open(jobStep.getName(), jsRepo);
 		
-		// Search entries in the output
-		for (String se : searchEntries) {
+		if(nChunks <= 1) {
 			
-			// Read log looking for a match
-			for (String line : jobStep.getLog()) {
+			// Read log once for all the entries
+			for (String line : log)
+				scan.line(line);
+			
+		} else {
+			
+			// Search chunks
+			List<ForkJoinTask<JobSearchScan>> chunks = new ArrayList<ForkJoinTask<JobSearchScan>>(nChunks);
+			for (int n = 0; n < nChunks; n++) {
 				
-				// Compile pattern
-		        Pattern pattern = Pattern.compile(se, Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE);
-
-		        // Prepare matcher
-		        Matcher matcher = pattern.matcher(line);
-
-		        // Match found
-		        while (matcher.find())
-		        {
-
-		        	// Initialize match element
-					JobSearchMatch jsm = new JobSearchMatch();
-					
-					// Set message where match is present
-					jsm.setMessage(line);
-					
-					// Set regular expression used
-					jsm.setRegEx(se);
-					
-					// Set label
-					jsm.setLabel(jobStep.getName());
-
-					// Add match to list
-					jsMatches.add(jsm);
-					
-					// Log
-					logger.trace("Found(" + se + " on line (" + line + ")");
-					
-				}
+				// Chunk lines
+				List<String> lines = log.subList((int)((long)log.size() * n / nChunks), (int)((long)log.size() * (n + 1) / nChunks));
 				
+				// Submit chunk
+				chunks.add(pool().submit(() -> {
+					JobSearchScan chunk = new JobSearchScan(scan.getLabel(), scan.getEngine());
+					for (String line : lines)
+						chunk.line(line);
+					return chunk;
+				}));
 			}
 			
+			// Merge chunks in line order
+			for (ForkJoinTask<JobSearchScan> chunk : chunks)
+				scan.merge(chunk.join());
+			
+			// Log
+			logger.debug("Searched chunks(" + nChunks + ") in parallel");
 		}
-	
+		
 		// Log
 		logger.debug("Search ended");
 		
+		return scan;
+	}
+	
+	
+	/**
+	 * Search matches in the UTF-8 lines of a buffer, from position to limit
+	 * Big buffers are split in chunks searched in parallel, matches keep the line order
+	 * @param scan Scan where matches are added
+	 * @param buffer Buffer with complete lines
+	 */
+	public void search(JobSearchScan scan, ByteBuffer buffer) {
+		
+		// Buffer bounds
+		int start = buffer.position();
+		int limit = buffer.limit();
+		
+		// Number of chunks
+		int nChunks = Math.min(parallelism, (limit - start) / MIN_CHUNK_BYTES);
+		
+		// Search on the calling thread
+		if(nChunks <= 1) {
+			scan.lines(buffer);
+			return;
+		}
+		
+		// Search chunks
+		List<ForkJoinTask<JobSearchScan>> chunks = new ArrayList<ForkJoinTask<JobSearchScan>>(nChunks);
+		int chunkStart = start;
+		for (int n = 1; (n <= nChunks) && (chunkStart < limit); n++) {
+			
+			// Chunk end, after the first line feed from the split point
+			int chunkEnd = limit;
+			if(n < nChunks) {
+				chunkEnd = Math.max(chunkStart, (int)(start + (long)(limit - start) * n / nChunks));
+				while((chunkEnd < limit) && ('\n' != buffer.get(chunkEnd)))
+					chunkEnd++;
+				if(chunkEnd < limit)
+					chunkEnd++;
+			}
+			
+			// Chunk view
+			ByteBuffer lines = buffer.duplicate();
+			lines.limit(chunkEnd);
+			lines.position(chunkStart);
+			
+			// Submit chunk
+			chunks.add(pool().submit(() -> {
+				JobSearchScan chunk = new JobSearchScan(scan.getLabel(), scan.getEngine());
+				chunk.lines(lines);
+				return chunk;
+			}));
+			
+			// Next chunk
+			chunkStart = chunkEnd;
+		}
+		
+		// Merge chunks in line order
+		for (ForkJoinTask<JobSearchScan> chunk : chunks)
+			scan.merge(chunk.join());
+		
+		// Log
+		logger.debug("Searched chunks(" + chunks.size() + ") in parallel");
+	}
+	
+	
+	/**
+	 * Search matches reading the log line by line, without keeping it in memory
+	 * @param label Label of the matches, usually the job step name
+	 * @param reader Log reader
+	 * @param jsRepo Job search repository
+	 * @return The number of matches
+	 * @throws IOException Error reading the log
+	 */
+	public int search(String label, BufferedReader reader, JobSearchRepository jsRepo) throws IOException {
+		
+		// Log
+		logger.trace("Search: use repositorty(" + jsRepo.getRepository() + ") for stream("+ label + ")");
+		
+		// Start scan
+		JobSearchScan scan = open(label, jsRepo);
+		
+		// Read lines
+		String line;
+		while ((line = reader.readLine()) != null)
+			scan.line(line);
+		
+		// Log
+		logger.debug("Search ended, lines(" + scan.getLines() + ")");
+		
+		// Add matches and return the number of matches
+		return add(scan);
+	}
+	
+	
+	/**
+	 * Get the pool shared by all the parallel searches
+	 * @return Pool
+	 */
+	private static synchronized ForkJoinPool pool() {
+		
+		// Create pool
+		if(null == pool)
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		
+		return pool;
+	}
+	
+	
+	/**
+	 * Stop the pool shared by all the parallel searches, called when the application is stopped
+	 */
+	public static synchronized void shutdown() {
+		
+		// Pool never used
+		if(null == pool)
+			return;
+		
+		// Stop threads
+		pool.shutdownNow();
+		pool = null;
+	}
+	
+	
+	/**
+	 * Start a scan that is fed one line at a time
+	 * Matches are added to this search only with add()
+	 * @param label Label of the matches, usually the job step name
+	 * @param jsRepo Job search repository
+	 * @return Scan
+	 */
+	public JobSearchScan open(String label, JobSearchRepository jsRepo) {
+		return new JobSearchScan(label, jsRepo.getEngine());
+	}
+	
+	
+	/**
+	 * Add the matches of a scan
+	 * @param scan Completed scan
+	 * @return The number of matches
+	 */
+	public synchronized int add(JobSearchScan scan) {
+		
+		// Initialize match list
+		if(null == jsMatches)
+			jsMatches = new ArrayList<JobSearchMatch>();
+		
+		// Add matches
+		jsMatches.addAll(scan.getMatches());
+		
 		// Return the number of matches
 		return jsMatches.size();
 	}
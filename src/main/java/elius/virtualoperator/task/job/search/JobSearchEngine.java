@@ -0,0 +1,271 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class JobSearchEngine {
+
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobSearchEngine.class);
+
+	// Flags used to compile every search entry
+	public static final int PATTERN_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE;
+
+	// Back references are renumbered when entries are combined in a single pattern
+	private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+	// Search entries
+	private final List<String> entries;
+
+	// Compiled search entries, same order of the entries
+	private final Pattern[] patterns;
+
+	// Index of the literals required by the entries, null if no entry has a literal
+	private final JobSearchLiteralIndex index;
+
+	// Entries without a required literal: they are evaluated on every line
+	private final int[] unindexed;
+
+	// Entries without a literal combined in one alternation: they are evaluated only if it matches
+	private final Pattern prefilter;
+
+
+	/**
+	 * Constructor
+	 * Compile every search entry once and index the literals required by the entries
+	 * @param entries Search entries (regular expressions)
+	 * @throws PatternSyntaxException If an entry is not a valid regular expression
+	 */
+	public JobSearchEngine(List<String> entries) throws PatternSyntaxException {
+
+		// Save entries
+		this.entries = Collections.unmodifiableList(new ArrayList<String>(entries));
+
+		// Compile entries
+		patterns = new Pattern[this.entries.size()];
+		for (int i = 0; i < patterns.length; i++)
+			patterns[i] = Pattern.compile(this.entries.get(i), PATTERN_FLAGS);
+
+		// Extract literals
+		List<String> literals = new ArrayList<String>();
+		List<String> others = new ArrayList<String>();
+		List<Integer> othersIndex = new ArrayList<Integer>();
+
+		for (int i = 0; i < patterns.length; i++) {
+
+			// Required literal
+			String literal = JobSearchLiteral.extract(this.entries.get(i));
+			literals.add(literal);
+
+			// Entry not indexed
+			if (literal.isEmpty()) {
+				others.add(this.entries.get(i));
+				othersIndex.add(i);
+			}
+
+			// Log
+			logger.trace("Entry(" + this.entries.get(i) + ") literal(" + literal + ")");
+		}
+
+		// Build literal index
+		index = (others.size() < patterns.length) ? new JobSearchLiteralIndex(literals) : null;
+
+		// Entries not indexed
+		unindexed = new int[othersIndex.size()];
+		for (int i = 0; i < unindexed.length; i++)
+			unindexed[i] = othersIndex.get(i);
+
+		// Combine entries not indexed
+		prefilter = combine(others);
+
+		// Log
+		logger.debug("Search engine: entries(" + patterns.length + ") indexed(" + (patterns.length - unindexed.length) + ")");
+	}
+
+
+	/**
+	 * Get the number of search entries
+	 * @return Number of search entries
+	 */
+	public int size() {
+		return patterns.length;
+	}
+
+
+	/**
+	 * Get search entry
+	 * @param index Entry index
+	 * @return Search entry (regular expression)
+	 */
+	public String getEntry(int index) {
+		return entries.get(index);
+	}
+
+
+	/**
+	 * Get search entries
+	 * @return Search entries list
+	 */
+	public List<String> getEntries() {
+		return entries;
+	}
+
+
+	/**
+	 * Create a work area for this engine
+	 * @return Search hits
+	 */
+	public JobSearchHits newHits() {
+		return new JobSearchHits(patterns.length);
+	}
+
+
+	/**
+	 * Get the literal index
+	 * @return Literal index or null if no entry has a literal
+	 */
+	public JobSearchLiteralIndex getIndex() {
+		return index;
+	}
+
+
+	/**
+	 * Verify if every entry has a required literal
+	 * In this case a line without literals of the index can't match any entry
+	 * @return True if all the entries are indexed
+	 */
+	public boolean isFullyIndexed() {
+		return 0 == unindexed.length;
+	}
+
+
+	/**
+	 * Scan a line with all the search entries
+	 * @param line Line to scan
+	 * @param hits Work area where matches are added
+	 * @return Total number of matches found on the line
+	 */
+	public int scan(CharSequence line, JobSearchHits hits) {
+
+		// Total matches
+		int nMatches = 0;
+
+		// Entries whose literal is on the line
+		if (null != index) {
+
+			// Find literals
+			index.find(line, hits);
+
+			// Evaluate candidates only
+			for (int n = 0; n < hits.getCandidates(); n++)
+				nMatches += evaluate(hits.getCandidate(n), line, hits);
+
+			// Reset candidates
+			hits.clearCandidates();
+		}
+
+		// Entries without literal
+		if ((unindexed.length > 0) && ((null == prefilter) || prefilter.matcher(line).find())) {
+			for (int i : unindexed)
+				nMatches += evaluate(i, line, hits);
+		}
+
+		// Return the number of matches
+		return nMatches;
+	}
+
+
+	/**
+	 * Evaluate a single entry on the line
+	 * @param entry Entry index
+	 * @param line Line
+	 * @param hits Work area where matches are added
+	 * @return Number of matches
+	 */
+	private int evaluate(int entry, CharSequence line, JobSearchHits hits) {
+
+		// Prepare matcher
+		Matcher matcher = patterns[entry].matcher(line);
+
+		// Count matches
+		int count = 0;
+		while (matcher.find())
+			count++;
+
+		// Add matches
+		if (count > 0)
+			hits.add(entry, count);
+
+		return count;
+	}
+
+
+	/**
+	 * Combine the entries in a single alternation
+	 * @param entries Search entries
+	 * @return Combined pattern or null if the entries can't be combined
+	 */
+	private static Pattern combine(List<String> entries) {
+
+		// Nothing to combine
+		if(entries.size() < 2)
+			return null;
+
+		// Build alternation
+		StringBuilder sb = new StringBuilder();
+
+		for (String entry : entries) {
+
+			// Back references would point to the wrong group
+			if(BACK_REFERENCE.matcher(entry).find()) {
+				logger.debug("Entry(" + entry + ") uses back references, prefilter disabled");
+				return null;
+			}
+
+			// Add entry as non capturing group
+			if(sb.length() > 0)
+				sb.append('|');
+			sb.append("(?:").append(entry).append(')');
+		}
+
+		try {
+
+			// Compile alternation
+			return Pattern.compile(sb.toString(), PATTERN_FLAGS);
+
+		} catch (PatternSyntaxException e) {
+
+			// Duplicated named groups for example
+			logger.debug("Entries can't be combined, prefilter disabled: " + e.getMessage());
+			return null;
+		}
+	}
+
+}
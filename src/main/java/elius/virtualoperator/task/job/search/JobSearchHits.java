@@ -0,0 +1,148 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+public class JobSearchHits {
+
+	// Matches per entry
+	private final int[] counts;
+
+	// Entries with at least one match
+	private final int[] matched;
+
+	// Number of entries with at least one match
+	private int nMatched;
+
+	// Candidate flag per entry
+	private final boolean[] candidate;
+
+	// Candidate entries
+	private final int[] candidates;
+
+	// Number of candidate entries
+	private int nCandidates;
+
+
+	/**
+	 * Constructor
+	 * Work area of the search engine: every thread that scans lines must use its own instance
+	 * @param size Number of search entries
+	 */
+	public JobSearchHits(int size) {
+		counts = new int[size];
+		matched = new int[size];
+		candidate = new boolean[size];
+		candidates = new int[size];
+	}
+
+
+	/**
+	 * Get the number of entries with at least one match
+	 * @return Number of entries
+	 */
+	public int size() {
+		return nMatched;
+	}
+
+
+	/**
+	 * Get an entry with at least one match
+	 * @param n Position, from 0 to size() - 1
+	 * @return Entry index
+	 */
+	public int getEntry(int n) {
+		return matched[n];
+	}
+
+
+	/**
+	 * Get the number of matches of an entry with at least one match
+	 * @param n Position, from 0 to size() - 1
+	 * @return Number of matches
+	 */
+	public int getCount(int n) {
+		return counts[matched[n]];
+	}
+
+
+	/**
+	 * Remove all the matches
+	 */
+	public void clear() {
+		for (int n = 0; n < nMatched; n++)
+			counts[matched[n]] = 0;
+		nMatched = 0;
+	}
+
+
+	/**
+	 * Add matches for an entry
+	 * @param entry Entry index
+	 * @param count Number of matches
+	 */
+	void add(int entry, int count) {
+		if (0 == counts[entry])
+			matched[nMatched++] = entry;
+		counts[entry] += count;
+	}
+
+
+	/**
+	 * Mark an entry as candidate
+	 * @param entry Entry index
+	 */
+	void candidate(int entry) {
+		if (!candidate[entry]) {
+			candidate[entry] = true;
+			candidates[nCandidates++] = entry;
+		}
+	}
+
+
+	/**
+	 * Get the number of candidate entries
+	 * @return Number of candidates
+	 */
+	int getCandidates() {
+		return nCandidates;
+	}
+
+
+	/**
+	 * Get a candidate entry
+	 * @param n Position, from 0 to getCandidates() - 1
+	 * @return Entry index
+	 */
+	int getCandidate(int n) {
+		return candidates[n];
+	}
+
+
+	/**
+	 * Remove all the candidates
+	 */
+	void clearCandidates() {
+		for (int n = 0; n < nCandidates; n++)
+			candidate[candidates[n]] = false;
+		nCandidates = 0;
+	}
+
+}
@@ -0,0 +1,278 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+public class JobSearchLiteral {
+
+	// Escapes of predefined classes and boundaries: they only break the literal
+	private static final String ESCAPE_CLASSES = "dDsSwWbBAzZGRhHvV";
+
+
+	/**
+	 * Extract the longest literal that every match of the regular expression must contain.
+	 * The literal is returned in lower case and contains only US-ASCII characters,
+	 * like the case insensitive matching used for the search entries.
+	 * The analysis is conservative: groups, classes and quantified characters are never part of the literal.
+	 * @param regEx Regular expression
+	 * @return Required literal in lower case, blank if the expression has no usable literal
+	 */
+	public static String extract(String regEx) {
+
+		// Best literal found
+		String best = "";
+
+		// Current literal
+		StringBuilder current = new StringBuilder();
+
+		// Scroll the expression at top level
+		int i = 0;
+		while (i < regEx.length()) {
+
+			// Current character
+			char c = regEx.charAt(i);
+
+			// Literal character found at this position, 0 if the atom is not a literal
+			char literal = 0;
+
+			switch (c) {
+
+				case '\\':
+					// Dangling escape
+					if (i + 1 >= regEx.length())
+						return "";
+
+					// Escaped character
+					char e = regEx.charAt(i + 1);
+
+					if (ESCAPE_CLASSES.indexOf(e) >= 0) {
+						// Class or boundary
+						i += 2;
+					} else if (Character.isLetterOrDigit(e) || (e >= 128)) {
+						// Back references, quoting, code points, properties: not supported
+						return "";
+					} else {
+						// Escaped punctuation
+						literal = e;
+						i += 2;
+					}
+					break;
+
+				case '(':
+					// Inline flags that change the matching of the literal
+					if (hasUnsupportedFlags(regEx, i))
+						return "";
+					// Groups are not evaluated
+					i = skipGroup(regEx, i);
+					if (i < 0)
+						return "";
+					break;
+
+				case '[':
+					// Classes are not evaluated
+					i = skipClass(regEx, i);
+					if (i < 0)
+						return "";
+					break;
+
+				case '|':
+					// Top level alternation: nothing is required
+					return "";
+
+				case '*':
+				case '+':
+				case '?':
+					// Quantifier of a non literal atom
+					i++;
+					break;
+
+				case '{':
+					// Bounded quantifier of a non literal atom
+					i = regEx.indexOf('}', i);
+					if (i < 0)
+						return "";
+					i++;
+					break;
+
+				case '.':
+				case '^':
+				case '$':
+					// Any character or anchors
+					i++;
+					break;
+
+				default:
+					// Plain character
+					literal = c;
+					i++;
+			}
+
+			// Quantified literal is optional or repeated
+			if ((0 != literal) && (i < regEx.length()) && ("*+?{".indexOf(regEx.charAt(i)) >= 0))
+				literal = 0;
+
+			// Only US-ASCII characters are matched without case by the search entries
+			if ((0 != literal) && (literal < 128)) {
+
+				// Extend literal
+				current.append(toLowerCase(literal));
+
+			} else {
+
+				// Literal interrupted
+				if (current.length() > best.length())
+					best = current.toString();
+				current.setLength(0);
+			}
+		}
+
+		// Last literal
+		if (current.length() > best.length())
+			best = current.toString();
+
+		// Return the required literal
+		return best;
+	}
+
+
+	/**
+	 * Convert an US-ASCII character to lower case
+	 * @param c Character
+	 * @return Lower case character
+	 */
+	public static char toLowerCase(char c) {
+		return ((c >= 'A') && (c <= 'Z')) ? (char)(c + ('a' - 'A')) : c;
+	}
+
+
+	/**
+	 * Verify if the group sets comments or unicode case flags
+	 * @param regEx Regular expression
+	 * @param start Group start position
+	 * @return True if the group uses an unsupported flag
+	 */
+	private static boolean hasUnsupportedFlags(String regEx, int start) {
+
+		// Not a flag group
+		if ((start + 1 >= regEx.length()) || ('?' != regEx.charAt(start + 1)))
+			return false;
+
+		// Scroll flags
+		for (int i = start + 2; i < regEx.length(); i++) {
+
+			char c = regEx.charAt(i);
+
+			// Comments and unicode case change how the literal is matched
+			if (('x' == c) || ('u' == c) || ('U' == c))
+				return true;
+
+			// End of flags
+			if (!Character.isLetter(c) && ('-' != c))
+				return false;
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Skip a group
+	 * @param regEx Regular expression
+	 * @param start Group start position
+	 * @return Position after the group, -1 if the group is not closed
+	 */
+	private static int skipGroup(String regEx, int start) {
+
+		// Nesting level
+		int depth = 0;
+
+		int i = start;
+		while (i < regEx.length()) {
+
+			char c = regEx.charAt(i);
+
+			if ('\\' == c) {
+				// Escaped character
+				i += 2;
+			} else if ('[' == c) {
+				// Nested class
+				i = skipClass(regEx, i);
+				if (i < 0)
+					return -1;
+			} else {
+				// Group nesting
+				if ('(' == c)
+					depth++;
+				else if ((')' == c) && (0 == --depth))
+					return i + 1;
+				i++;
+			}
+		}
+
+		// Group not closed
+		return -1;
+	}
+
+
+	/**
+	 * Skip a character class
+	 * @param regEx Regular expression
+	 * @param start Class start position
+	 * @return Position after the class, -1 if the class is not closed
+	 */
+	private static int skipClass(String regEx, int start) {
+
+		// Nesting level
+		int depth = 0;
+
+		int i = start;
+		while (i < regEx.length()) {
+
+			char c = regEx.charAt(i);
+
+			if ('\\' == c) {
+				// Escaped character
+				i += 2;
+				continue;
+			}
+
+			if ('[' == c) {
+				// Opening: a closing bracket right after is a plain character
+				depth++;
+				i++;
+				if ((i < regEx.length()) && ('^' == regEx.charAt(i)))
+					i++;
+				if ((i < regEx.length()) && (']' == regEx.charAt(i)))
+					i++;
+				continue;
+			}
+
+			// Closing
+			if ((']' == c) && (0 == --depth))
+				return i + 1;
+
+			i++;
+		}
+
+		// Class not closed
+		return -1;
+	}
+
+}
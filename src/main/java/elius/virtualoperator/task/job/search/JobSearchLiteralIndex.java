@@ -0,0 +1,208 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public class JobSearchLiteralIndex {
+
+	// Root state
+	private static final int ROOT = 0;
+
+	// Character class of every US-ASCII character, 0 for characters not used by literals
+	private final int[] charClass;
+
+	// Number of character classes
+	private final int nClasses;
+
+	// Transitions: state * nClasses + class
+	private final int[] delta;
+
+	// Entries whose literal ends in the state, null if none
+	private final int[][] output;
+
+
+	/**
+	 * Constructor
+	 * Build the Aho-Corasick automaton of the literals required by the search entries.
+	 * Literals are lower case US-ASCII: input is folded the same way and any other character
+	 * restarts the automaton, so the index can scan both characters and UTF-8 bytes.
+	 * @param literals Literal of every entry, blank for entries not indexed
+	 */
+	public JobSearchLiteralIndex(List<String> literals) {
+
+		// Assign a class to every character used by the literals
+		charClass = new int[128];
+		int classes = 1;
+		for (String literal : literals) {
+			for (int i = 0; i < literal.length(); i++) {
+				char c = literal.charAt(i);
+				if (0 == charClass[c])
+					charClass[c] = classes++;
+			}
+		}
+		nClasses = classes;
+
+		// Build trie
+		List<int[]> gotoList = new ArrayList<int[]>();
+		List<List<Integer>> outputList = new ArrayList<List<Integer>>();
+		gotoList.add(new int[nClasses]);
+		outputList.add(new ArrayList<Integer>());
+
+		for (int entry = 0; entry < literals.size(); entry++) {
+
+			String literal = literals.get(entry);
+
+			// Entry not indexed
+			if (literal.isEmpty())
+				continue;
+
+			// Add literal
+			int state = ROOT;
+			for (int i = 0; i < literal.length(); i++) {
+				int cls = charClass[literal.charAt(i)];
+				if (0 == gotoList.get(state)[cls]) {
+					gotoList.get(state)[cls] = gotoList.size();
+					gotoList.add(new int[nClasses]);
+					outputList.add(new ArrayList<Integer>());
+				}
+				state = gotoList.get(state)[cls];
+			}
+
+			// Literal end
+			outputList.get(state).add(entry);
+		}
+
+		// Build transitions and failure links breadth first
+		int nStates = gotoList.size();
+		delta = new int[nStates * nClasses];
+		int[] fail = new int[nStates];
+		Deque<Integer> queue = new ArrayDeque<Integer>();
+
+		// Root transitions
+		for (int cls = 1; cls < nClasses; cls++) {
+			int next = gotoList.get(ROOT)[cls];
+			delta[ROOT * nClasses + cls] = next;
+			if (ROOT != next) {
+				fail[next] = ROOT;
+				queue.add(next);
+			}
+		}
+
+		// Other states
+		while (!queue.isEmpty()) {
+
+			int state = queue.poll();
+
+			// Inherit outputs of the failure state
+			outputList.get(state).addAll(outputList.get(fail[state]));
+
+			for (int cls = 1; cls < nClasses; cls++) {
+				int next = gotoList.get(state)[cls];
+				if (ROOT != next) {
+					// Trie edge
+					fail[next] = delta[fail[state] * nClasses + cls];
+					delta[state * nClasses + cls] = next;
+					queue.add(next);
+				} else {
+					// Failure edge
+					delta[state * nClasses + cls] = delta[fail[state] * nClasses + cls];
+				}
+			}
+		}
+
+		// Compact outputs
+		output = new int[nStates][];
+		for (int state = 0; state < nStates; state++) {
+			List<Integer> entries = outputList.get(state);
+			if (!entries.isEmpty()) {
+				output[state] = new int[entries.size()];
+				for (int i = 0; i < output[state].length; i++)
+					output[state][i] = entries.get(i);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the automaton start state
+	 * @return Start state
+	 */
+	public int start() {
+		return ROOT;
+	}
+
+
+	/**
+	 * Move the automaton by one character or byte
+	 * @param state Current state
+	 * @param c Character or unsigned byte
+	 * @return Next state
+	 */
+	public int next(int state, int c) {
+
+		// Characters not used by any literal restart the automaton
+		if (c >= 128)
+			return ROOT;
+
+		// Fold case
+		if ((c >= 'A') && (c <= 'Z'))
+			c += 'a' - 'A';
+
+		return delta[state * nClasses + charClass[c]];
+	}
+
+
+	/**
+	 * Get the entries whose literal ends in the state
+	 * @param state State
+	 * @return Entries or null if no literal ends in the state
+	 */
+	public int[] output(int state) {
+		return output[state];
+	}
+
+
+	/**
+	 * Mark as candidate every entry whose literal is contained in the line
+	 * @param line Line
+	 * @param hits Search hits
+	 */
+	public void find(CharSequence line, JobSearchHits hits) {
+
+		// Run automaton
+		int state = ROOT;
+		for (int i = 0; i < line.length(); i++) {
+
+			state = next(state, line.charAt(i));
+
+			// Literals found
+			if (null != output[state]) {
+				for (int entry : output[state])
+					hits.candidate(entry);
+			}
+		}
+	}
+
+}
@@ -22,8 +22,10 @@ package elius.virtualoperator.task.job.search;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +43,9 @@ public class JobSearchRepository {
 	// Repository
 	private String repository;
 	
+	// Compiled entries
+	private JobSearchEngine engine;
+	
 	
 	/**
 	 * Constructor
@@ -52,6 +57,18 @@ public class JobSearchRepository {
 	}
 	
 	
+	/**
+	 * Get the path of the repository file
+	 * @param repository Repository
+	 * @return Repository file path
+	 */
+	public static String getPath(String repository) {
+		return System.getProperty(ApplicationAttributes.APP_PATH) + 
+				"/" + JobSearchRepositoryAttributes.SEARCH_ENTRIES_REPOSITORY + 
+				"/" + repository;
+	}
+	
+	
 	/**
 	 * Read search entries
 	 * @param repository Repository
@@ -62,11 +79,38 @@ public class JobSearchRepository {
 		// Log
 		logger.debug("Start read entries from repository(" + JobSearchRepositoryAttributes.SEARCH_ENTRIES_REPOSITORY + "/" + repository + ")");
 		
+		try {
+			
+			// Read repository file
+			return load(repository, new FileReader(getPath(repository)));
+			
+		} catch (IOException e) {
+			
+			// Error reading file
+			logger.error("Error reading file");
+			// Log Message
+			logger.error(e.getMessage());
+			// Set return code
+			return 1;
+			
+		}
+	}
+	
+	
+	/**
+	 * Read search entries from an already opened source
+	 * @param repository Repository
+	 * @param source Repository content, closed at the end
+	 * @return 0 OK, otherwise error
+	 */
+	int load(String repository, Reader source) {
+		
 		// Save repository name
 		this.repository = repository;
 		
 		// Remove previous elements
 		entries.clear();
+		engine = null;
 		
 		// Reader
 		BufferedReader reader;
@@ -74,9 +118,7 @@ public class JobSearchRepository {
 		try {
 			
 			// Initialize reader
-			reader = new BufferedReader(new FileReader(System.getProperty(ApplicationAttributes.APP_PATH) + 
-														"/" + JobSearchRepositoryAttributes.SEARCH_ENTRIES_REPOSITORY + 
-														"/" + repository));
+			reader = new BufferedReader(source);
 			
 			// Read first line
 			String line = reader.readLine();
@@ -115,6 +157,22 @@ public class JobSearchRepository {
 			
 		}
 		
+		try {
+			
+			// Compile entries once for every search
+			engine = new JobSearchEngine(entries);
+			
+		} catch (PatternSyntaxException e) {
+			
+			// Invalid regular expression
+			logger.error("Invalid entry in repository(" + repository + ")");
+			// Log Message
+			logger.error(e.getMessage());
+			// Set return code
+			return 2;
+			
+		}
+		
 		// Log
 		logger.trace("Entries successfully loaded");
 		
@@ -135,6 +193,15 @@ public class JobSearchRepository {
 	}
 
 	
+	/**
+	 * Get compiled entries
+	 * @return Search engine or null if the repository is not loaded
+	 */
+	public JobSearchEngine getEngine() {
+		return engine;
+	}
+
+	
 	/**
 	 * Get repository name
 	 */
@@ -0,0 +1,254 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class JobSearchRepositoryCache {
+
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobSearchRepositoryCache.class);
+
+	// Loaded repositories by name
+	private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
+
+	// Requests served without reading the repository
+	private static final AtomicLong hits = new AtomicLong();
+
+	// Repositories loaded for the first time
+	private static final AtomicLong misses = new AtomicLong();
+
+	// Repositories loaded again because the file content changed
+	private static final AtomicLong reloads = new AtomicLong();
+
+
+	/**
+	 * Get a loaded repository
+	 * The repository is read and compiled only the first time or when the file changes.
+	 * The returned repository is shared between tasks: it must not be loaded again.
+	 * @param repository Repository
+	 * @return Repository or null in case of errors
+	 */
+	public static JobSearchRepository get(String repository) {
+
+		// Repository file
+		Path path = Paths.get(JobSearchRepository.getPath(repository));
+
+		// File attributes
+		BasicFileAttributes attributes;
+
+		try {
+
+			// Read attributes
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+		} catch (IOException e) {
+
+			// Error reading file
+			logger.error("Error reading repository(" + repository + ") attributes");
+			// Log Message
+			logger.error(e.getMessage());
+			// Return error
+			return null;
+		}
+
+		// Cached repository not changed
+		CacheEntry entry = cache.get(repository);
+		if ((null != entry) && entry.isSame(attributes)) {
+			hits.incrementAndGet();
+			return entry.repository;
+		}
+
+		// Load or verify the repository one thread at a time
+		synchronized (JobSearchRepositoryCache.class) {
+
+			// Already loaded by another thread
+			entry = cache.get(repository);
+			if ((null != entry) && entry.isSame(attributes)) {
+				hits.incrementAndGet();
+				return entry.repository;
+			}
+
+			// Content
+			byte[] content;
+
+			try {
+
+				// Read file
+				content = Files.readAllBytes(path);
+
+			} catch (IOException e) {
+
+				// Error reading file
+				logger.error("Error reading repository(" + repository + ")");
+				// Log Message
+				logger.error(e.getMessage());
+				// Return error
+				return null;
+			}
+
+			// Content hash
+			byte[] hash = hash(content);
+
+			// Only the timestamp changed
+			if ((null != entry) && (null != hash) && Arrays.equals(hash, entry.hash)) {
+
+				// Save new attributes
+				cache.put(repository, new CacheEntry(entry.repository, attributes, hash));
+
+				// Log
+				logger.debug("Repository(" + repository + ") touched but not changed");
+
+				hits.incrementAndGet();
+				return entry.repository;
+			}
+
+			// Load repository from content
+			JobSearchRepository jsRepo = new JobSearchRepository();
+			if (0 != jsRepo.load(repository, new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset())))
+				return null;
+
+			// Save repository
+			cache.put(repository, new CacheEntry(jsRepo, attributes, hash));
+
+			// Update counters
+			if (null == entry)
+				misses.incrementAndGet();
+			else
+				reloads.incrementAndGet();
+
+			// Log
+			logger.debug("Repository(" + repository + ") loaded: hits(" + hits.get() + ") misses(" + misses.get() + ") reloads(" + reloads.get() + ")");
+
+			return jsRepo;
+		}
+	}
+
+
+	/**
+	 * Remove all cached repositories
+	 */
+	public static void clear() {
+		cache.clear();
+	}
+
+
+	/**
+	 * Get the number of requests served from the cache
+	 * @return Hits
+	 */
+	public static long getHits() {
+		return hits.get();
+	}
+
+
+	/**
+	 * Get the number of repositories loaded for the first time
+	 * @return Misses
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+
+
+	/**
+	 * Get the number of repositories loaded again after a change
+	 * @return Reloads
+	 */
+	public static long getReloads() {
+		return reloads.get();
+	}
+
+
+	/**
+	 * Compute content hash
+	 * @param content Content
+	 * @return Hash
+	 */
+	private static byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256: never compare equal
+			return null;
+		}
+	}
+
+
+	/**
+	 * Cached repository
+	 */
+	private static class CacheEntry {
+
+		// Loaded repository
+		private final JobSearchRepository repository;
+
+		// File last modified time
+		private final long lastModified;
+
+		// File size
+		private final long size;
+
+		// Content hash
+		private final byte[] hash;
+
+
+		/**
+		 * Constructor
+		 * @param repository Loaded repository
+		 * @param attributes File attributes
+		 * @param hash Content hash
+		 */
+		CacheEntry(JobSearchRepository repository, BasicFileAttributes attributes, byte[] hash) {
+			this.repository = repository;
+			this.lastModified = attributes.lastModifiedTime().toMillis();
+			this.size = attributes.size();
+			this.hash = hash;
+		}
+
+
+		/**
+		 * Verify if the file is unchanged
+		 * @param attributes Current file attributes
+		 * @return True if time and size are the same
+		 */
+		boolean isSame(BasicFileAttributes attributes) {
+			return (lastModified == attributes.lastModifiedTime().toMillis()) && (size == attributes.size());
+		}
+	}
+
+}
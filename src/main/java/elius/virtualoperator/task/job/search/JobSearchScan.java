@@ -0,0 +1,301 @@
+/**
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+    
+      http://www.apache.org/licenses/LICENSE-2.0
+    
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+
+
+package elius.virtualoperator.task.job.search;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class JobSearchScan {
+
+	// Get logger
+	private static Logger logger = LogManager.getLogger(JobSearchScan.class);
+
+	// Label of the matches
+	private final String label;
+
+	// Compiled search entries
+	private final JobSearchEngine engine;
+
+	// Matches of the current line
+	private final JobSearchHits hits;
+
+	// Matches per entry, kept apart to return them grouped by entry
+	private final List<List<JobSearchMatch>> entryMatches;
+
+	// Number of lines scanned
+	private long nLines;
+
+	// Bytes of the line to decode
+	private byte[] lineBytes;
+
+
+	/**
+	 * Constructor
+	 * Scan of a single log, fed one line at a time by a single thread
+	 * @param label Label of the matches, usually the job step name
+	 * @param engine Compiled search entries
+	 */
+	public JobSearchScan(String label, JobSearchEngine engine) {
+
+		// Set label
+		this.label = label;
+
+		// Set engine
+		this.engine = engine;
+
+		// Work area
+		hits = engine.newHits();
+
+		// Entries matches
+		entryMatches = new ArrayList<List<JobSearchMatch>>(engine.size());
+		for (int i = 0; i < engine.size(); i++)
+			entryMatches.add(null);
+	}
+
+
+	/**
+	 * Search matches in a line
+	 * @param line Log line
+	 * @return The number of matches on the line
+	 */
+	public int line(String line) {
+
+		// Count line
+		nLines++;
+
+		// No match on this line
+		int nMatches = engine.scan(line, hits);
+		if (0 == nMatches)
+			return 0;
+
+		// Scroll entries with a match
+		for (int n = 0; n < hits.size(); n++) {
+
+			// Entry
+			int i = hits.getEntry(n);
+
+			// Every match found on the line
+			for (int k = 0; k < hits.getCount(n); k++) {
+
+				// Initialize match element
+				JobSearchMatch jsm = new JobSearchMatch();
+
+				// Set message where match is present
+				jsm.setMessage(line);
+
+				// Set regular expression used
+				jsm.setRegEx(engine.getEntry(i));
+
+				// Set label
+				jsm.setLabel(label);
+
+				// Add match to the entry list
+				if (null == entryMatches.get(i))
+					entryMatches.set(i, new ArrayList<JobSearchMatch>());
+				entryMatches.get(i).add(jsm);
+
+				// Log
+				logger.trace("Found(" + engine.getEntry(i) + " on line (" + line + ")");
+			}
+		}
+
+		// Reset line matches
+		hits.clear();
+
+		// Return the number of matches
+		return nMatches;
+	}
+
+
+	/**
+	 * Search matches in the UTF-8 lines of a buffer, from position to limit
+	 * When every entry has a required literal, the literal index runs on the bytes
+	 * and only the lines with a candidate literal are decoded and evaluated.
+	 * Lines end with line feed, carriage return or both, like BufferedReader.
+	 * @param buffer Buffer with complete lines
+	 * @return The number of matches
+	 */
+	public int lines(ByteBuffer buffer) {
+
+		// Literal index
+		JobSearchLiteralIndex index = engine.getIndex();
+
+		// Lines without a literal of the index can't match
+		boolean filter = engine.isFullyIndexed();
+
+		// Total matches
+		int nMatches = 0;
+
+		// Scroll lines
+		int position = buffer.position();
+		int limit = buffer.limit();
+		while (position < limit) {
+
+			// Line start
+			int start = position;
+
+			// Candidate literal found on the line
+			boolean candidate = false;
+
+			// Find line end running the literal index
+			int state = (null != index) ? index.start() : 0;
+			while (position < limit) {
+
+				int b = buffer.get(position) & 0xff;
+
+				// Line end
+				if (('\n' == b) || ('\r' == b))
+					break;
+
+				// Literal index
+				if (filter && (null != index) && !candidate) {
+					state = index.next(state, b);
+					candidate = (null != index.output(state));
+				}
+
+				position++;
+			}
+
+			// Line end position
+			int end = position;
+
+			// Skip line terminator
+			if (position < limit) {
+				if (('\r' == buffer.get(position)) && (position + 1 < limit) && ('\n' == buffer.get(position + 1)))
+					position += 2;
+				else
+					position++;
+			}
+
+			// Evaluate line
+			if (!filter || candidate)
+				nMatches += line(decode(buffer, start, end));
+			else
+				nLines++;
+		}
+
+		// Return the number of matches
+		return nMatches;
+	}
+
+
+	/**
+	 * Decode an UTF-8 line
+	 * @param buffer Buffer
+	 * @param start Line start
+	 * @param end Line end
+	 * @return Line
+	 */
+	private String decode(ByteBuffer buffer, int start, int end) {
+
+		// Line length
+		int length = end - start;
+
+		// Grow line area
+		if ((null == lineBytes) || (lineBytes.length < length))
+			lineBytes = new byte[Math.max(length, 256)];
+
+		// Copy line
+		ByteBuffer line = buffer.duplicate();
+		line.position(start);
+		line.get(lineBytes, 0, length);
+
+		// Decode line
+		return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Append the matches of a scan of the lines that follow the ones of this scan
+	 * @param scan Scan of the next lines, with the same engine
+	 */
+	public void merge(JobSearchScan scan) {
+
+		// Count lines
+		nLines += scan.nLines;
+
+		// Append matches of every entry
+		for (int i = 0; i < entryMatches.size(); i++) {
+
+			// No match for the entry
+			List<JobSearchMatch> m = scan.entryMatches.get(i);
+			if (null == m)
+				continue;
+
+			// Add matches
+			if (null == entryMatches.get(i))
+				entryMatches.set(i, new ArrayList<JobSearchMatch>());
+			entryMatches.get(i).addAll(m);
+		}
+	}
+
+
+	/**
+	 * Get the matches found so far, grouped by entry in the repository order
+	 * @return List of job search matches
+	 */
+	public List<JobSearchMatch> getMatches() {
+
+		// Matches
+		List<JobSearchMatch> matches = new ArrayList<JobSearchMatch>();
+
+		// Add matches in entry order
+		for (List<JobSearchMatch> m : entryMatches) {
+			if (null != m)
+				matches.addAll(m);
+		}
+
+		return matches;
+	}
+
+
+	/**
+	 * Get the number of lines scanned
+	 * @return Number of lines
+	 */
+	public long getLines() {
+		return nLines;
+	}
+
+
+	/**
+	 * Get the label of the matches
+	 * @return Label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+
+	/**
+	 * Get the compiled search entries
+	 * @return Search engine
+	 */
+	JobSearchEngine getEngine() {
+		return engine;
+	}
+
+}
@@ -24,10 +24,19 @@ public class ShellAttributes {
 	// Default - Application properties file
 	public static final String DEFAULT_SHELL_PROPERTIES_FILE = "evo-shell.properties";
 	
+	// Default - Max number of scripts running together, 0 no limit
+	public static final int DEFAULT_TASK_SHELL_MAX_CONCURRENCY = 0;
+	
+	// Target system of the scripts
+	public static final String TARGET_SHELL = "shell";
+	
 	
 	// Properties - Path where scripts stored
 	public static final String PROP_TASK_SHELL_SCRIPTS_PATH = "task.shell.scripts.path";
 	
 	// Properties - Path where scripts are executed (working directory)
 	public static final String PROP_TASK_SHELL_WORK_PATH = "task.shell.work.path";	
+	
+	// Properties - Max number of scripts running together, 0 no limit
+	public static final String PROP_TASK_SHELL_MAX_CONCURRENCY = "task.shell.maxConcurrency";
 }
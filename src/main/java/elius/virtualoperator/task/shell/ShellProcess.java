@@ -31,6 +31,7 @@ import elius.webapp.framework.properties.PropertiesManagerFactory;
 import elius.virtualoperator.task.Task;
 import elius.virtualoperator.task.TaskProcess;
 import elius.virtualoperator.task.TaskStatus;
+import elius.virtualoperator.task.TaskTargetLimiter;
 
 
 public class ShellProcess implements TaskProcess {
@@ -89,6 +90,20 @@ public class ShellProcess implements TaskProcess {
 		// Set working directory
 		builder.directory(new File(pathWork));
 		
+		// Max number of scripts running together
+		TaskTargetLimiter limiter = TaskTargetLimiter.define(ShellAttributes.TARGET_SHELL,
+				appProperties.getInt(ShellAttributes.PROP_TASK_SHELL_MAX_CONCURRENCY, ShellAttributes.DEFAULT_TASK_SHELL_MAX_CONCURRENCY));
+		
+		// Wait for a permit of the local system
+		if (0 != limiter.acquire()) {
+			// Set error
+			tStatus = TaskStatus.ERROR;
+			// Set error message
+			pResult = "Interrupted waiting to run";
+			// Exit
+			return;
+		}
+		
 		try {
 			
 			// Create process
@@ -128,6 +143,9 @@ public class ShellProcess implements TaskProcess {
 			pResult = "Generic error, check system log";
 			// Set task error code
 			tStatus = TaskStatus.ERROR;
+		} finally {
+			// Release permit
+			limiter.release();
 		}
 		
 	}